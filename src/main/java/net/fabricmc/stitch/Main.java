@@ -20,24 +20,15 @@ package net.fabricmc.stitch;
 import net.fabricmc.stitch.commands.*;
 import net.fabricmc.stitch.commands.tinyv2.*;
 
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.Locale;
 import java.util.Map;
 import java.util.TreeMap;
 
 public class Main
 {
-    public static final MessageDigest MESSAGE_DIGEST;
     private static final Map<String, Command> COMMAND_MAP = new TreeMap<>();
 
     static {
-        try {
-            MESSAGE_DIGEST = MessageDigest.getInstance("SHA-256");
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);
-        }
-
         addCommand(new CommandMergeJar());
         addCommand(new CommandMergeTiny());
         addCommand(new CommandCombineTiny());
@@ -27,6 +27,7 @@ import net.fabricmc.stitch.Command;
 import net.fabricmc.stitch.representation.Classpath;
 import net.fabricmc.stitch.representation.JarClassEntry;
 import net.fabricmc.stitch.representation.JarReader;
+import net.fabricmc.stitch.representation.StagePlan;
 
 public class CommandGenerateNests extends Command {
 
@@ -61,7 +62,10 @@ public class CommandGenerateNests extends Command {
 
         Classpath storage = new Classpath(input.toFile());
         try {
-            new JarReader(storage).apply();
+            JarReader reader = new JarReader(storage);
+            // the nests only depend on the inner class attributes
+            reader.setStagePlan(StagePlan.NESTS_ONLY);
+            reader.apply();
         } catch (IOException e) {
             throw new RuntimeException("could not read input jar", e);
         }
@@ -28,19 +28,28 @@ import java.util.regex.PatternSyntaxException;
 
 public class GenState
 {
+    /**
+     * Matches the names of the classes in the packages of libraries that are
+     * shaded into the jar. None of these are Minecraft classes.
+     */
+    public static final Pattern SHADED_LIBRARY_CLASS_NAME = Pattern.compile("^(argo|paulscode|com/fasterxml|com/jcraft|javax)/.*");
+
     final Scanner scanner = new Scanner(System.in);
     final List<Pattern> obfuscatedPatterns = new ArrayList<>();
     String defaultPackage = "net/minecraft/";
     String targetNamespace = "intermediary";
     int nameLength = 6;
     boolean propagateNames = false;
+    /** the traversals for finding propagations, one per classpath */
+    private final Map<Classpath, ClassTraversal> propagationTraversals = new IdentityHashMap<>();
 
     public GenState() {
         this.obfuscatedPatterns.add(Pattern.compile("^[^A-Z]*$")); // Default ofbfuscation. Obfuscated names are all lowercase
     }
 
     public static boolean isMinecraftClass(JarClassEntry c) {
-        return isMinecraftClassName(c.getName());
+        // summary only classes are not hashed, so they cannot be named
+        return !c.isSummaryOnly() && isMinecraftClassName(c.getName());
     }
 
     public static boolean isMinecraftClassName(String name) {
@@ -69,8 +78,19 @@ public class GenState
 
     public static boolean isEnumMethod(Classpath storage, JarClassEntry c, JarMethodEntry m) {
         return Access.isEnum(c.getAccess()) &&
-                ("values".equals(m.getName()) && ("()[L" + c.getName() + ";").equals(m.getDescriptor()) ||
-                "valueOf".equals(m.getName()) && ("(Ljava/lang/String;)L" + c.getName() + ";").equals(m.getDescriptor()));
+                ("values".equals(m.getName()) && isReturningClass(m.getDescriptor(), "()[L", c.getName()) ||
+                "valueOf".equals(m.getName()) && isReturningClass(m.getDescriptor(), "(Ljava/lang/String;)L", c.getName()));
+    }
+
+    /**
+     * @return whether the descriptor is the given prefix followed by the
+     *  given class name, without building that descriptor
+     */
+    private static boolean isReturningClass(String desc, String prefix, String className) {
+        return desc.length() == prefix.length() + className.length() + 1
+                && desc.startsWith(prefix)
+                && desc.startsWith(className, prefix.length())
+                && desc.charAt(desc.length() - 1) == ';';
     }
 
     public boolean isObfuscated(JarClassEntry c) {
@@ -283,16 +303,44 @@ public class GenState
             return "";
         }
 
+        // the propagations of the super types are found first, with an
+        // explicit stack rather than recursion, and each only once
+        Map<JarClassEntry, String> propagations = new IdentityHashMap<>();
+        ClassTraversal traversal = propagationTraversals.computeIfAbsent(storage, ClassTraversal::new);
+        traversal.reset();
+        traversal.push(classEntry);
+
+        while (!traversal.isEmpty()) {
+            JarClassEntry c = traversal.peek();
+
+            if (propagations.containsKey(c)) {
+                traversal.next();
+            } else if (traversal.visit(c)) {
+                traversal.push(c.getSuperClass(storage));
+                for (JarClassEntry ce : c.getInterfaces(storage)) {
+                    traversal.push(ce);
+                }
+            } else {
+                // the super types are done, or part of a circular hierarchy
+                propagations.put(c, getPropagation(storage, c, propagations));
+                traversal.next();
+            }
+        }
+
+        return propagations.get(classEntry);
+    }
+
+    private String getPropagation(Classpath storage, JarClassEntry classEntry, Map<JarClassEntry, String> propagations) {
         StringBuilder builder = new StringBuilder(classEntry.getName());
         List<String> strings = new ArrayList<>();
-        String scs = getPropagation(storage, classEntry.getSuperClass(storage));
-        if (!scs.isEmpty()) {
+        String scs = propagations.get(classEntry.getSuperClass(storage));
+        if (scs != null) {
             strings.add(scs);
         }
 
         for (JarClassEntry ce : classEntry.getInterfaces(storage)) {
-            scs = getPropagation(storage, ce);
-            if (!scs.isEmpty()) {
+            scs = propagations.get(ce);
+            if (scs != null) {
                 strings.add(scs);
             }
         }
@@ -18,8 +18,9 @@
 package net.fabricmc.stitch.representation;
 
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 
-import net.fabricmc.stitch.Main;
+import net.fabricmc.stitch.util.HashUtil;
 
 public abstract class AbstractJarEntry
 {
@@ -29,6 +30,11 @@ public abstract class AbstractJarEntry
     protected int access;
     protected Side side;
 
+    /** The class this entry was put into, if it is a member. */
+    JarClassEntry parent;
+
+    private int hashCode;
+
     public AbstractJarEntry(String name, String parentName) {
         this.name = name;
         this.parentName = parentName;
@@ -51,6 +57,15 @@ public abstract class AbstractJarEntry
         return parentName;
     }
 
+    /**
+     * @return the class that {@code parentName} resolves to, without
+     *  looking up its name if the class this entry was put into is
+     *  the one visible on the classpath
+     */
+    JarClassEntry resolveParent(Classpath storage) {
+        return (parent == null) ? storage.getClass(parentName) : parent.resolve(storage);
+    }
+
     public Side getSide() {
         return side;
     }
@@ -69,6 +84,15 @@ public abstract class AbstractJarEntry
         return name;
     }
 
+    /**
+     * Replaces the symbols of this entry by their canonical instances.
+     * This must be done before the entry is added to its parent.
+     */
+    void intern(SymbolTable symbols) {
+        name = symbols.get(name);
+        parentName = symbols.get(parentName);
+    }
+
     public char getPrefix() {
         throw new UnsupportedOperationException();
     }
@@ -82,13 +106,20 @@ public abstract class AbstractJarEntry
     }
 
     protected void hash(byte[] parentHash) {
-        Main.MESSAGE_DIGEST.reset();
-        Main.MESSAGE_DIGEST.update(parentHash);
+        hashEntry(parentHash);
+    }
+
+    /**
+     * Hashes only this entry, and not the entries it contains.
+     */
+    final void hashEntry(byte[] parentHash) {
+        MessageDigest digest = HashUtil.getDigest();
+        digest.update(parentHash);
         // we only care about the actual jar content, so do not add jar file name
         if (getClass() != JarRootEntry.class) {
-            Main.MESSAGE_DIGEST.update(getKey().getBytes(StandardCharsets.UTF_8));
+            digest.update(getKey().getBytes(StandardCharsets.UTF_8));
         }
-        hash = Main.MESSAGE_DIGEST.digest();
+        hash = digest.digest();
     }
 
     public byte[] getHash() {
@@ -102,7 +133,13 @@ public abstract class AbstractJarEntry
 
     @Override
     public int hashCode() {
-        return (parentName + getKey()).hashCode();
+        // entries are immutable once added to their parent, and
+        // hashed in maps often enough for this to be worth caching
+        int h = hashCode;
+        if (h == 0) {
+            hashCode = h = (parentName + getKey()).hashCode();
+        }
+        return h;
     }
 
     @Override
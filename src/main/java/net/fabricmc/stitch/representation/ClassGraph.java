@@ -0,0 +1,404 @@
+/*
+ * Copyright (c) 2026 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.stitch.representation;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The resolved super and sub types of all classes of a classpath. Each
+ * class gets an int id, and its relations are stored as ranges of ids in
+ * shared arrays, so they can be traversed without looking up names.
+ *
+ * <p>For each class the ids of all its transitive super types are kept
+ * in a sorted array as well, so that sub type checks are a binary search.
+ *
+ * <p>Whether a class is serializable only depends on its super classes,
+ * so it is computed once for every class as well.
+ *
+ * <p>The graph is built once the sub classes are populated, and is only
+ * valid as long as no classes are added to the classpath.
+ */
+final class ClassGraph {
+
+    private static final byte UNKNOWN = 0;
+    private static final byte VISITING = 1;
+    private static final byte SERIALIZABLE = 2;
+    private static final byte NOT_SERIALIZABLE = 3;
+
+    private static final int[] NO_IDS = new int[0];
+
+    private final JarClassEntry[] classes;
+
+    private final int[] superClasses;
+    private final int[] interfaceOffsets;
+    private final int[] interfaces;
+    private final int[] subclassOffsets;
+    private final int[] subclasses;
+    private final int[] implementerOffsets;
+    private final int[] implementers;
+    private final int[][] ancestors;
+    private final boolean[] visible;
+    private final byte[] serializable;
+
+    private ClassGraph(JarClassEntry[] classes, boolean[] visible, int[] superClasses, int[] interfaceOffsets, int[] interfaces, int[] subclassOffsets, int[] subclasses, int[] implementerOffsets, int[] implementers) {
+        this.classes = classes;
+        this.visible = visible;
+        this.superClasses = superClasses;
+        this.interfaceOffsets = interfaceOffsets;
+        this.interfaces = interfaces;
+        this.subclassOffsets = subclassOffsets;
+        this.subclasses = subclasses;
+        this.implementerOffsets = implementerOffsets;
+        this.implementers = implementers;
+        this.ancestors = new int[classes.length][];
+
+        this.serializable = new byte[classes.length];
+
+        for (int id = 0; id < classes.length; id++) {
+            findAncestors(id);
+            findSerializable(id);
+        }
+    }
+
+    static ClassGraph build(Classpath storage) {
+        List<JarClassEntry> classes = new ArrayList<>();
+
+        for (JarRootEntry jar : storage.classpath) {
+            addClasses(jar, classes);
+        }
+        addClasses(storage.jdk, classes);
+
+        int count = classes.size();
+        boolean[] visible = new boolean[count];
+        int[] superClasses = new int[count];
+        IdRanges interfaces = new IdRanges(count);
+        IdRanges subclasses = new IdRanges(count);
+        IdRanges implementers = new IdRanges(count);
+
+        for (int id = 0; id < count; id++) {
+            JarClassEntry c = classes.get(id);
+
+            visible[id] = storage.getClass(c.name) == c;
+            superClasses[id] = resolve(storage, c.superclass);
+            interfaces.add(storage, c.interfaces);
+            subclasses.add(storage, c.subclasses);
+            implementers.add(storage, c.implementers);
+        }
+
+        return new ClassGraph(classes.toArray(new JarClassEntry[count]), visible, superClasses,
+            interfaces.offsets, interfaces.ids(), subclasses.offsets, subclasses.ids(), implementers.offsets, implementers.ids());
+    }
+
+    /**
+     * Finds the ancestors of the given class and of all its super types
+     * that have not been visited yet, in post order with an explicit stack,
+     * since class hierarchies can be arbitrarily deep.
+     */
+    private void findAncestors(int root) {
+        if (ancestors[root] != null) {
+            return;
+        }
+
+        // for each class on the stack, the index of the next super type to visit
+        int[] stack = new int[16];
+        int[] cursors = new int[16];
+        int depth = 0;
+
+        // classes that are being visited have no ancestors yet, which
+        // guards against (invalid) circular class hierarchies
+        ancestors[root] = NO_IDS;
+        stack[depth] = root;
+        cursors[depth++] = superTypesFrom(root);
+
+        while (depth > 0) {
+            int id = stack[depth - 1];
+            int next = -1;
+
+            while (next < 0 && cursors[depth - 1] < interfaceOffsets[id + 1]) {
+                int superId = superTypeAt(id, cursors[depth - 1]++);
+
+                if (ancestors[superId] == null) {
+                    next = superId;
+                }
+            }
+
+            if (next < 0) {
+                ancestors[id] = collectAncestors(id);
+                depth--;
+            } else {
+                if (depth == stack.length) {
+                    stack = Arrays.copyOf(stack, 2 * depth);
+                    cursors = Arrays.copyOf(cursors, 2 * depth);
+                }
+
+                ancestors[next] = NO_IDS;
+                stack[depth] = next;
+                cursors[depth++] = superTypesFrom(next);
+            }
+        }
+    }
+
+    /**
+     * @return the index of the first super type of the given class for
+     *  {@link #superTypeAt(int, int)}
+     */
+    private int superTypesFrom(int id) {
+        return (superClasses[id] < 0) ? interfaceOffsets[id] : interfaceOffsets[id] - 1;
+    }
+
+    /**
+     * @return the super class of the given class for the index before its
+     *  interfaces, or the interface at the given index
+     */
+    private int superTypeAt(int id, int i) {
+        return (i < interfaceOffsets[id]) ? superClasses[id] : interfaces[i];
+    }
+
+    /**
+     * @return the sorted ids of the super types of the given class and
+     *  their ancestors, which must have been found already
+     */
+    private int[] collectAncestors(int id) {
+        int[] found = new int[8];
+        int size = 0;
+
+        for (int i = superTypesFrom(id); i < interfaceOffsets[id + 1]; i++) {
+            int superId = superTypeAt(id, i);
+            int[] superAncestors = ancestors[superId];
+
+            if (size + superAncestors.length + 1 > found.length) {
+                found = Arrays.copyOf(found, 2 * (size + superAncestors.length + 1));
+            }
+
+            found[size++] = superId;
+            System.arraycopy(superAncestors, 0, found, size, superAncestors.length);
+            size += superAncestors.length;
+        }
+
+        Arrays.sort(found, 0, size);
+
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (distinct == 0 || found[i] != found[distinct - 1]) {
+                found[distinct++] = found[i];
+            }
+        }
+
+        return Arrays.copyOf(found, distinct);
+    }
+
+    /**
+     * Walks up the super classes of the given class until one is found of
+     * which it is known whether it is serializable, and marks all classes
+     * on the way with the result.
+     */
+    private void findSerializable(int id) {
+        int c = id;
+        byte result;
+
+        while (true) {
+            if (c < 0) {
+                result = NOT_SERIALIZABLE;
+                break;
+            }
+            if (serializable[c] != UNKNOWN) {
+                // a class that is still being visited has a circular hierarchy
+                result = (serializable[c] == SERIALIZABLE) ? SERIALIZABLE : NOT_SERIALIZABLE;
+                break;
+            }
+
+            JarClassEntry entry = classes[c];
+
+            // enums are not used for level serialization in mc
+            if (Access.isEnum(entry.access)) {
+                result = serializable[c] = NOT_SERIALIZABLE;
+                break;
+            }
+            if (entry.interfaces.contains("java/io/Serializable")) {
+                result = serializable[c] = SERIALIZABLE;
+                break;
+            }
+
+            serializable[c] = VISITING;
+            c = superClasses[c];
+        }
+
+        for (c = id; c >= 0 && serializable[c] == VISITING; c = superClasses[c]) {
+            serializable[c] = result;
+        }
+    }
+
+    private static void addClasses(JarRootEntry jar, List<JarClassEntry> classes) {
+        for (JarClassEntry c : jar.getAllClasses()) {
+            c.graphId = classes.size();
+            classes.add(c);
+        }
+    }
+
+    private static int resolve(Classpath storage, String name) {
+        JarClassEntry c = storage.getClass(name);
+        return (c == null) ? -1 : c.graphId;
+    }
+
+    /**
+     * @return whether the given class is part of this graph
+     */
+    boolean contains(JarClassEntry c) {
+        int id = c.graphId;
+        return id >= 0 && id < classes.length && classes[id] == c;
+    }
+
+    int size() {
+        return classes.length;
+    }
+
+    JarClassEntry get(int id) {
+        return classes[id];
+    }
+
+    JarClassEntry getSuperClass(JarClassEntry c) {
+        int id = superClasses[c.graphId];
+        return (id < 0) ? null : classes[id];
+    }
+
+    List<JarClassEntry> getInterfaces(JarClassEntry c) {
+        return new Range(interfaces, interfaceOffsets[c.graphId], interfaceOffsets[c.graphId + 1], -1);
+    }
+
+    /**
+     * @return the super class followed by the interfaces of the given class
+     */
+    List<JarClassEntry> getSuperClasses(JarClassEntry c) {
+        return new Range(interfaces, interfaceOffsets[c.graphId], interfaceOffsets[c.graphId + 1], superClasses[c.graphId]);
+    }
+
+    List<JarClassEntry> getSubclasses(JarClassEntry c) {
+        return new Range(subclasses, subclassOffsets[c.graphId], subclassOffsets[c.graphId + 1], -1);
+    }
+
+    List<JarClassEntry> getImplementers(JarClassEntry c) {
+        return new Range(implementers, implementerOffsets[c.graphId], implementerOffsets[c.graphId + 1], -1);
+    }
+
+    /**
+     * @return the ids of all transitive super types of the given class,
+     *  in ascending order
+     */
+    int[] getAncestors(JarClassEntry c) {
+        return ancestors[c.graphId];
+    }
+
+    /**
+     * @return whether the first class is a transitive super type of the
+     *  second class; both classes must be part of this graph
+     */
+    boolean isSuperType(JarClassEntry sup, JarClassEntry c) {
+        return Arrays.binarySearch(ancestors[c.graphId], sup.graphId) >= 0;
+    }
+
+    /**
+     * @return whether the given class is what its name resolves to on the
+     *  classpath, rather than being shadowed by a class of an earlier jar
+     */
+    boolean isVisible(JarClassEntry c) {
+        return visible[c.graphId];
+    }
+
+    boolean isSerializable(JarClassEntry c) {
+        return serializable[c.graphId] == SERIALIZABLE;
+    }
+
+    /**
+     * Collects the ids of the resolved names of each class, in class order.
+     */
+    private static final class IdRanges {
+
+        final int[] offsets;
+        private int[] ids;
+        private int size;
+        private int next;
+
+        IdRanges(int count) {
+            this.offsets = new int[count + 1];
+            this.ids = new int[count];
+        }
+
+        void add(Classpath storage, List<String> names) {
+            for (int i = 0; i < names.size(); i++) {
+                int id = resolve(storage, names.get(i));
+
+                // unresolved names are left out, like before
+                if (id >= 0) {
+                    if (size == ids.length) {
+                        ids = Arrays.copyOf(ids, 2 * ids.length + 1);
+                    }
+                    ids[size++] = id;
+                }
+            }
+
+            offsets[++next] = size;
+        }
+
+        int[] ids() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+
+    /**
+     * An unmodifiable view of a range of ids, optionally preceded by
+     * one more id.
+     */
+    private final class Range extends AbstractList<JarClassEntry> implements RandomAccess {
+
+        private final int[] ids;
+        private final int from;
+        private final int to;
+        private final int first;
+
+        Range(int[] ids, int from, int to, int first) {
+            this.ids = ids;
+            this.from = from;
+            this.to = to;
+            this.first = first;
+        }
+
+        @Override
+        public JarClassEntry get(int index) {
+            if (first >= 0) {
+                if (index == 0) {
+                    return classes[first];
+                }
+
+                index--;
+            }
+            if (index < 0 || index >= to - from) {
+                throw new IndexOutOfBoundsException(Integer.toString(index));
+            }
+
+            return classes[ids[from + index]];
+        }
+
+        @Override
+        public int size() {
+            return (to - from) + (first >= 0 ? 1 : 0);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2026 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.stitch.representation;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * The classes of all jars of a classpath by name. Each name maps to the
+ * class of the first jar that has it, in the order the classpath is
+ * searched: the main jar, the libraries, and then the JDK. Library
+ * classes that are listed in the jar but not read yet are indexed by
+ * the jar they would be read from.
+ *
+ * <p>Classes that are not read yet are loaded at most once at a time:
+ * concurrent loads of the same class share the result of the first one,
+ * while different classes can be loaded in parallel.
+ */
+final class ClassIndex {
+
+    private final Map<String, JarClassEntry> classes = new ConcurrentHashMap<>();
+    private final Map<String, JarRootEntry> owners = new ConcurrentHashMap<>();
+    /** the loads that are in progress, or that did not find the class */
+    private final Map<String, CompletableFuture<JarClassEntry>> loads = new ConcurrentHashMap<>();
+    private final LongAdder lookups = new LongAdder();
+
+    /**
+     * @return the class with the given name, or {@code null} if no jar
+     *  has read a class with that name yet
+     */
+    JarClassEntry get(String name) {
+        lookups.increment();
+        return classes.get(name);
+    }
+
+    /**
+     * @return the first jar that lists a class with the given name but
+     *  has not read it yet, or {@code null} if there is none
+     */
+    JarRootEntry getOwner(String name) {
+        return owners.get(name);
+    }
+
+    /**
+     * Loads the class with the given name with the given loader, unless
+     * another thread is loading it already, in which case the result of
+     * that load is used. That a class could not be found is remembered
+     * until more classes are listed.
+     *
+     * @return the class that was loaded, or {@code null} if it was not found
+     */
+    JarClassEntry load(String name, Function<String, JarClassEntry> loader) {
+        CompletableFuture<JarClassEntry> load = loads.get(name);
+
+        if (load == null) {
+            CompletableFuture<JarClassEntry> created = new CompletableFuture<>();
+            load = loads.putIfAbsent(name, created);
+
+            if (load == null) {
+                try {
+                    // the class may have been loaded since it was looked up
+                    JarClassEntry c = classes.get(name);
+                    if (c == null) {
+                        c = loader.apply(name);
+                    }
+
+                    created.complete(c);
+                    if (c != null) {
+                        // from now on the class is found without loading it
+                        loads.remove(name, created);
+                    }
+
+                    return c;
+                } catch (RuntimeException | Error e) {
+                    // a failed load is tried again by the next caller
+                    loads.remove(name, created);
+                    created.completeExceptionally(e);
+                    throw e;
+                }
+            }
+        }
+
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw e;
+        }
+    }
+
+    void add(JarClassEntry c) {
+        classes.merge(c.name, c, (a, b) -> (a.jar.rank <= b.jar.rank) ? a : b);
+    }
+
+    void addOwner(JarRootEntry jar, Collection<String> names) {
+        for (String name : names) {
+            owners.merge(name, jar, (a, b) -> (a.rank <= b.rank) ? a : b);
+        }
+
+        // classes that were not found before may be found now
+        loads.clear();
+    }
+
+    void clear() {
+        classes.clear();
+        owners.clear();
+        loads.clear();
+    }
+
+    void clearOwners() {
+        owners.clear();
+    }
+
+    /**
+     * @return how many times a class was looked up in this index
+     */
+    long getLookups() {
+        return lookups.sum();
+    }
+}
@@ -34,28 +34,26 @@ public class ClassPropagationTree {
         relevantClasses = StitchUtil.newIdentityHashSet();
         topmostClasses = StitchUtil.newIdentityHashSet();
 
-        LinkedList<JarClassEntry> queue = new LinkedList<>();
-        queue.add(baseClass);
+        ClassTraversal traversal = new ClassTraversal(storage);
+        traversal.add(baseClass);
 
-        while (!queue.isEmpty()) {
-            JarClassEntry entry = queue.remove();
-            if (entry == null || relevantClasses.contains(entry)) {
+        while (!traversal.isEmpty()) {
+            JarClassEntry entry = traversal.next();
+            if (!traversal.visit(entry)) {
                 continue;
             }
             relevantClasses.add(entry);
 
-            int qSize = queue.size();
-            queue.addAll(entry.getSubclasses(storage));
-            queue.addAll(entry.getImplementers(storage));
-            if (qSize == queue.size()) {
+            List<JarClassEntry> subclasses = entry.getSubclasses(storage);
+            List<JarClassEntry> implementers = entry.getImplementers(storage);
+            if (subclasses.isEmpty() && implementers.isEmpty()) {
                 topmostClasses.add(entry);
             }
 
-            queue.addAll(entry.getInterfaces(storage));
-            JarClassEntry superClass = entry.getSuperClass(storage);
-            if (superClass != null) {
-                queue.add(superClass);
-            }
+            traversal.addAll(subclasses);
+            traversal.addAll(implementers);
+            traversal.addAll(entry.getInterfaces(storage));
+            traversal.add(entry.getSuperClass(storage));
         }
     }
 
@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2026 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.stitch.representation;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+
+import net.fabricmc.stitch.representation.JarClassEntry.ClassEntryPopulator;
+import net.fabricmc.stitch.util.StitchUtil;
+
+/**
+ * The class meta that is needed of library and JDK classes: access,
+ * super types and method keys. Summaries are immutable and can be
+ * turned into class entries for any number of jars.
+ */
+final class ClassSummary {
+
+    final int access;
+    final String name;
+    final String signature;
+    final String superName;
+    final String[] interfaces;
+    final int[] methodAccess;
+    final String[] methodNames;
+    final String[] methodDescriptors;
+    final String[] methodSignatures;
+
+    private ClassSummary(int access, String name, String signature, String superName, String[] interfaces, int[] methodAccess, String[] methodNames, String[] methodDescriptors, String[] methodSignatures) {
+        this.access = access;
+        this.name = name;
+        this.signature = signature;
+        this.superName = superName;
+        this.interfaces = interfaces;
+        this.methodAccess = methodAccess;
+        this.methodNames = methodNames;
+        this.methodDescriptors = methodDescriptors;
+        this.methodSignatures = methodSignatures;
+    }
+
+    static ClassSummary read(ClassReader reader) {
+        SummaryVisitor visitor = new SummaryVisitor();
+        reader.accept(visitor, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+
+        int methodCount = visitor.methodNames.size();
+        int[] methodAccess = new int[methodCount];
+        for (int i = 0; i < methodCount; i++) {
+            methodAccess[i] = visitor.methodAccess.get(i);
+        }
+
+        return new ClassSummary(
+            visitor.access,
+            visitor.name,
+            visitor.signature,
+            visitor.superName,
+            visitor.interfaces,
+            methodAccess,
+            visitor.methodNames.toArray(new String[methodCount]),
+            visitor.methodDescriptors.toArray(new String[methodCount]),
+            visitor.methodSignatures.toArray(new String[methodCount])
+        );
+    }
+
+    /**
+     * Adds an entry for this class to the given jar, if it does not
+     * contain this class yet. The entry is only added once its methods
+     * are, so other threads never see a partial entry.
+     *
+     * @return the class of the jar with the name of this class
+     */
+    JarClassEntry materialize(JarRootEntry jar) {
+        ClassEntryPopulator populator = new ClassEntryPopulator();
+
+        populator.access = access;
+        populator.name = name;
+        populator.signature = signature;
+        populator.superclass = superName;
+        populator.interfaces = interfaces;
+
+        JarClassEntry existing = jar.getClass(name, null);
+        if (existing != null) {
+            return existing;
+        }
+
+        JarClassEntry classEntry = jar.createClass(name, populator);
+
+        for (int i = 0; i < methodNames.length; i++) {
+            JarMethodEntry methodEntry = new JarMethodEntry(methodAccess[i], methodNames[i], methodDescriptors[i], methodSignatures[i], name);
+            classEntry.putMethod(methodEntry);
+        }
+        classEntry.sortMembers();
+
+        return jar.addClass(classEntry);
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeInt(access);
+        writeString(out, name);
+        writeString(out, signature);
+        writeString(out, superName);
+        out.writeInt(interfaces.length);
+        for (String itf : interfaces) {
+            writeString(out, itf);
+        }
+        out.writeInt(methodNames.length);
+        for (int i = 0; i < methodNames.length; i++) {
+            out.writeInt(methodAccess[i]);
+            writeString(out, methodNames[i]);
+            writeString(out, methodDescriptors[i]);
+            writeString(out, methodSignatures[i]);
+        }
+    }
+
+    static ClassSummary read(ByteBuffer in) {
+        int access = in.getInt();
+        String name = readString(in);
+        String signature = readString(in);
+        String superName = readString(in);
+        String[] interfaces = new String[in.getInt()];
+        for (int i = 0; i < interfaces.length; i++) {
+            interfaces[i] = readString(in);
+        }
+        int methodCount = in.getInt();
+        int[] methodAccess = new int[methodCount];
+        String[] methodNames = new String[methodCount];
+        String[] methodDescriptors = new String[methodCount];
+        String[] methodSignatures = new String[methodCount];
+        for (int i = 0; i < methodCount; i++) {
+            methodAccess[i] = in.getInt();
+            methodNames[i] = readString(in);
+            methodDescriptors[i] = readString(in);
+            methodSignatures[i] = readString(in);
+        }
+
+        return new ClassSummary(access, name, signature, superName, interfaces, methodAccess, methodNames, methodDescriptors, methodSignatures);
+    }
+
+    static void writeString(DataOutput out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    static String readString(ByteBuffer in) {
+        int length = in.getInt();
+
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static class SummaryVisitor extends ClassVisitor {
+
+        private final List<Integer> methodAccess = new ArrayList<>();
+        private final List<String> methodNames = new ArrayList<>();
+        private final List<String> methodDescriptors = new ArrayList<>();
+        private final List<String> methodSignatures = new ArrayList<>();
+        private int access;
+        private String name;
+        private String signature;
+        private String superName;
+        private String[] interfaces;
+
+        SummaryVisitor() {
+            super(StitchUtil.ASM_VERSION, null);
+        }
+
+        @Override
+        public void visit(final int version, final int access, final String name, final String signature,
+                          final String superName, final String[] interfaces) {
+            this.access = access;
+            this.name = name;
+            this.signature = signature;
+            this.superName = superName;
+            this.interfaces = interfaces;
+
+            super.visit(version, access, name, signature, superName, interfaces);
+        }
+
+        @Override
+        public MethodVisitor visitMethod(final int access, final String name, final String descriptor,
+                                         final String signature, final String[] exceptions) {
+            methodAccess.add(access);
+            methodNames.add(name);
+            methodDescriptors.add(descriptor);
+            methodSignatures.add(signature);
+
+            return super.visitMethod(access, name, descriptor, signature, exceptions);
+        }
+    }
+}
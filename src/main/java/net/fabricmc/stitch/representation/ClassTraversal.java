@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2026 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.stitch.representation;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import net.fabricmc.stitch.util.StitchUtil;
+
+/**
+ * An iterative walk over the classes of a classpath. It keeps an explicit
+ * work list and the set of visited classes, so deep class hierarchies do
+ * not overflow the stack and no class is walked twice. Classes of the
+ * class graph are marked in a bit set by their id.
+ *
+ * <p>A traversal can be {@link #reset} and used for any number of walks,
+ * but it must not be shared between threads.
+ */
+public final class ClassTraversal {
+
+    private final Classpath storage;
+    private final ArrayDeque<JarClassEntry> work = new ArrayDeque<>();
+    private final BitSet visited = new BitSet();
+    private final Set<JarClassEntry> visitedOutsideGraph = StitchUtil.newIdentityHashSet();
+    private ClassGraph graph;
+
+    public ClassTraversal(Classpath storage) {
+        this.storage = storage;
+        this.graph = storage.graph;
+    }
+
+    /**
+     * Clears the work list and the visited classes.
+     */
+    public void reset() {
+        work.clear();
+        visited.clear();
+        visitedOutsideGraph.clear();
+        graph = storage.graph;
+    }
+
+    /**
+     * Marks the given class as visited.
+     *
+     * @return whether the class was not visited before
+     */
+    public boolean visit(JarClassEntry c) {
+        if (graph != null && graph.contains(c)) {
+            if (visited.get(c.graphId)) {
+                return false;
+            }
+
+            visited.set(c.graphId);
+            return true;
+        }
+
+        return visitedOutsideGraph.add(c);
+    }
+
+    public boolean isVisited(JarClassEntry c) {
+        if (graph != null && graph.contains(c)) {
+            return visited.get(c.graphId);
+        }
+
+        return visitedOutsideGraph.contains(c);
+    }
+
+    /**
+     * Removes the visited mark of the given class, for walks that only
+     * need to know the classes on the current path.
+     */
+    public void leave(JarClassEntry c) {
+        if (graph != null && graph.contains(c)) {
+            visited.clear(c.graphId);
+        } else {
+            visitedOutsideGraph.remove(c);
+        }
+    }
+
+    /**
+     * Adds the given class to the end of the work list, for breadth
+     * first walks. {@code null} is ignored.
+     */
+    public void add(JarClassEntry c) {
+        if (c != null) {
+            work.addLast(c);
+        }
+    }
+
+    public void addAll(Collection<JarClassEntry> classes) {
+        for (JarClassEntry c : classes) {
+            add(c);
+        }
+    }
+
+    /**
+     * Adds the given class to the front of the work list, for depth
+     * first walks. {@code null} is ignored.
+     */
+    public void push(JarClassEntry c) {
+        if (c != null) {
+            work.addFirst(c);
+        }
+    }
+
+    /**
+     * @return the class at the front of the work list, without removing it
+     */
+    public JarClassEntry peek() {
+        return work.peekFirst();
+    }
+
+    /**
+     * @return the class at the front of the work list
+     */
+    public JarClassEntry next() {
+        return work.pollFirst();
+    }
+
+    public boolean isEmpty() {
+        return work.isEmpty();
+    }
+
+    /**
+     * Walks the transitive super types of the given class.
+     *
+     * @return whether any of them matches the given predicate
+     */
+    public boolean anySuperType(JarClassEntry c, Predicate<JarClassEntry> predicate) {
+        reset();
+        addAll(c.getSuperClasses(storage));
+
+        while (!isEmpty()) {
+            JarClassEntry superClass = next();
+
+            if (visit(superClass)) {
+                if (predicate.test(superClass)) {
+                    return true;
+                }
+
+                addAll(superClass.getSuperClasses(storage));
+            }
+        }
+
+        return false;
+    }
+}
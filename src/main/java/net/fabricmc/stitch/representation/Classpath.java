@@ -14,6 +14,13 @@ public class Classpath {
     final JarRootEntry jdk;
     final JarRootEntry[] classpath;
     final Nests nests;
+    /** the file the nests were read from, if any */
+    final File nestsFile;
+    final SymbolTable symbols = new SymbolTable();
+    final ClassIndex index = new ClassIndex();
+    final DescriptorTable descriptors = new DescriptorTable(symbols);
+    /** the resolved class relations, once the sub classes are populated */
+    volatile ClassGraph graph;
 
     private boolean serializable;
 
@@ -33,12 +40,15 @@ public class Classpath {
         this.jdk = new JarRootEntry(new File("."));
         this.classpath = new JarRootEntry[libs.size() + 1];
         this.nests = nests == null ? Nests.empty() : Nests.of(nests.toPath());
+        this.nestsFile = nests;
 
         int i = 0;
         this.classpath[i++] = new JarRootEntry(jar);
         for (File lib : libs) {
             this.classpath[i++] = new JarRootEntry(lib);
         }
+
+        this.shareTables();
     }
 
     public Classpath(JarRootEntry jar, JarRootEntry... libs) {
@@ -53,12 +63,33 @@ public class Classpath {
         }
         this.classpath = new JarRootEntry[libs.length + 1];
         this.nests = nests;
+        this.nestsFile = null;
 
         int i = 0;
         this.classpath[i++] = jar;
         for (JarRootEntry lib : libs) {
             this.classpath[i++] = lib;
         }
+
+        this.shareTables();
+    }
+
+    private void shareTables() {
+        for (int i = 0; i < this.classpath.length; i++) {
+            this.shareTables(this.classpath[i], i);
+        }
+        this.shareTables(this.jdk, this.classpath.length);
+    }
+
+    private void shareTables(JarRootEntry jar, int rank) {
+        jar.symbols = this.symbols;
+        jar.index = this.index;
+        jar.rank = rank;
+
+        // jars may have been populated before they were put on the classpath
+        for (JarClassEntry c : jar.getAllClasses()) {
+            this.index.add(c);
+        }
     }
 
     public void setSerializable(boolean serializable) {
@@ -78,43 +109,65 @@ public class Classpath {
     }
 
     public JarClassEntry getClass(String name) {
-        JarClassEntry c = getJar().getClass(name, null);
+        return (name == null) ? null : index.get(name);
+    }
+
+    /**
+     * Lists classes of a library that are only read once they are needed.
+     */
+    void queueClasses(JarRootEntry jar, Collection<String> names) {
+        jar.classQueue.addAll(names);
+        index.addOwner(jar, names);
+    }
+
+    /**
+     * @return how many times a class was looked up by name
+     */
+    public long getClassLookups() {
+        return index.getLookups();
+    }
+
+    /**
+     * Looks up the class with the given name, and reads it from the
+     * libraries or the JDK if it was not read yet. This can be called from
+     * any number of threads, until the class graph is built.
+     *
+     * @throws IllegalStateException if the class was not read yet, and
+     *  the class graph is already built
+     */
+    public JarClassEntry findClass(String name) {
+        if (name == null) {
+            return null;
+        }
+
+        JarClassEntry c = index.get(name);
         if (c != null) {
             return c;
         }
-        for (int i = 1; i < classpath.length; i++) {
-            JarRootEntry jar = classpath[i];
-            c = jar.getClass(name, null);
-            if (c != null) {
-                return c;
-            }
-        }
-        return jdk.getClass(name, null);
+
+        return index.load(name, this::readClass);
     }
 
-    public JarClassEntry findClass(String name) {
+    private JarClassEntry readClass(String name) {
+        if (graph != null) {
+            // the class graph is built once all classes it relates are
+            // read, and would miss the relations of new classes
+            throw new IllegalStateException("cannot read class " + name + " after the class graph is built");
+        }
+
         try {
-            JarClassEntry c = getJar().getClass(name, null);
-            if (c != null) {
-                return c;
-            }
-            for (int i = 1; i < classpath.length; i++) {
-                JarRootEntry jar = classpath[i];
-                c = jar.getClass(name, null);
-                if (c != null) {
-                    return c;
-                }
-                if (jar.classQueue.remove(name)) {
-                    c = JarReader.readFromClasspath(jar, name);
-                    if (c != null) {
-                        return c;
+            JarRootEntry owner = index.getOwner(name);
+            if (owner != null) {
+                for (int i = owner.rank; i < classpath.length; i++) {
+                    JarRootEntry jar = classpath[i];
+                    if (jar.classQueue.remove(name)) {
+                        JarClassEntry c = JarReader.readFromClasspath(jar, name);
+                        if (c != null) {
+                            return c;
+                        }
                     }
                 }
             }
-            c = jdk.getClass(name, null);
-            if (c != null) {
-                return c;
-            }
 
             return JarReader.readFromJdk(jdk, name);
         } catch (IOException e) {
@@ -0,0 +1,554 @@
+/*
+ * Copyright (c) 2026 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.stitch.representation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import net.fabricmc.stitch.representation.JarClassEntry.ClassEntryPopulator;
+import net.fabricmc.stitch.util.StitchUtil;
+
+/**
+ * Reads and writes the populated model of a {@link Classpath} as a
+ * binary file. Snapshots are keyed by the SHA-256 of the jar, the
+ * libraries, the nests and the salt, so a snapshot is only used for the
+ * exact inputs it was created from.
+ *
+ * <p>Snapshots start with their length and checksum, so that truncated
+ * or corrupt files are read as missing and are written again. The files are readable to
+ * all users, so a cache directory can be shared between users.
+ */
+final class ClasspathSnapshot {
+
+    private static final int MAGIC = 0x53544d53; // STMS
+    private static final int VERSION = 4;
+    /** the size of the magic, the version, the length and the checksum */
+    private static final int HEADER_SIZE = 16;
+
+    private static final Side[] SIDES = Side.values();
+
+    private ClasspathSnapshot() {
+    }
+
+    /**
+     * @return the snapshot file for the given classpath, stage plan and salt, or
+     *  {@code null} if the inputs of the classpath cannot be keyed
+     */
+    static File getFile(File directory, Classpath classpath, StagePlan plan, Pattern summaryOnlyClasses, byte[] salt) throws IOException {
+        MessageDigest digest;
+
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        digest.update(toBytes(VERSION));
+        // the model also contains the JDK classes the jar depends on, which
+        // are read from the running JDK, or else from the system class path
+        digest.update(JdkIndex.getRuntime().getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(String.valueOf(System.getProperty("java.class.path")).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+
+        for (JarRootEntry jar : classpath.classpath) {
+            update(digest, jar.file);
+        }
+
+        if (classpath.nestsFile != null) {
+            update(digest, classpath.nestsFile);
+        } else if (classpath.nests.iterator().hasNext()) {
+            // nests that were not read from a file cannot be keyed
+            return null;
+        }
+
+        // a model read with fewer stages misses relations and hashes
+        digest.update(plan.name().getBytes(StandardCharsets.UTF_8));
+        if (summaryOnlyClasses != null) {
+            digest.update(summaryOnlyClasses.pattern().getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update((byte) 0);
+
+        digest.update(toBytes(salt.length));
+        digest.update(salt);
+
+        StringBuilder name = new StringBuilder();
+        for (byte b : digest.digest()) {
+            name.append(Character.forDigit((b >> 4) & 0xF, 16));
+            name.append(Character.forDigit(b & 0xF, 16));
+        }
+
+        return new File(directory, name.append(".bin").toString());
+    }
+
+    private static void update(MessageDigest digest, File file) throws IOException {
+        byte[] buffer = new byte[65536];
+
+        digest.update(toBytes(file.length()));
+
+        try (InputStream is = Files.newInputStream(file.toPath())) {
+            int n;
+            while ((n = is.read(buffer)) > 0) {
+                digest.update(buffer, 0, n);
+            }
+        }
+    }
+
+    private static byte[] toBytes(long value) {
+        byte[] bytes = new byte[8];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (value >>> (56 - 8 * i));
+        }
+        return bytes;
+    }
+
+    static void write(File file, Classpath classpath) throws IOException {
+        Writer writer = new Writer(classpath);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        try (DataOutputStream out = new DataOutputStream(body)) {
+            writer.writeModel(out);
+        }
+
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+
+        try (DataOutputStream out = new DataOutputStream(payload)) {
+            out.writeInt(writer.strings.size());
+            for (String s : writer.strings.keySet()) {
+                out.writeUTF(s);
+            }
+            body.writeTo(out);
+        }
+
+        CRC32 checksum = new CRC32();
+        checksum.update(payload.toByteArray());
+
+        File dir = file.getAbsoluteFile().getParentFile();
+        Files.createDirectories(dir.toPath());
+        Path tmp = Files.createTempFile(dir.toPath(), file.getName(), ".tmp");
+
+        try {
+            try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+                DataOutputStream out = new DataOutputStream(os);
+
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(payload.size());
+                out.writeInt((int) checksum.getValue());
+                payload.writeTo(out);
+                out.flush();
+            }
+
+            StitchUtil.moveIntoPlace(tmp, file.toPath());
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Reads the snapshot into the given classpath, which must not have
+     * been populated yet. The snapshot is checked against its length and
+     * checksum before it is decoded, so a truncated or corrupt snapshot
+     * is not read.
+     *
+     * @return whether the snapshot could be read, or {@code false} if it
+     *  was written in a different format
+     * @throws IOException if the snapshot is truncated or corrupt
+     */
+    static boolean read(File file, Classpath classpath) throws IOException {
+        byte[] payload;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return false;
+            }
+
+            int length = in.readInt();
+            int expected = in.readInt();
+
+            if (length != file.length() - HEADER_SIZE) {
+                throw new IOException("snapshot is truncated");
+            }
+
+            payload = new byte[length];
+            in.readFully(payload);
+
+            CRC32 checksum = new CRC32();
+            checksum.update(payload);
+
+            if ((int) checksum.getValue() != expected) {
+                throw new IOException("snapshot checksum mismatch");
+            }
+        }
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            String[] strings = new String[in.readInt()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = in.readUTF();
+            }
+
+            new Reader(classpath, strings).readModel(in);
+        } catch (IOException | RuntimeException e) {
+            // do not leave a partially read model behind
+            for (JarRootEntry jar : getRoots(classpath)) {
+                jar.clearClasses();
+                jar.hash = new byte[0];
+            }
+            classpath.index.clear();
+
+            throw (e instanceof IOException) ? (IOException) e : new IOException("corrupt snapshot", e);
+        }
+
+        return true;
+    }
+
+    private static List<JarRootEntry> getRoots(Classpath classpath) {
+        List<JarRootEntry> roots = new ArrayList<>();
+
+        for (JarRootEntry jar : classpath.classpath) {
+            roots.add(jar);
+        }
+        roots.add(classpath.jdk);
+
+        return roots;
+    }
+
+    private static class Writer {
+
+        private final Classpath classpath;
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+        private final Map<JarClassEntry, Integer> classIds = new IdentityHashMap<>();
+        private final Map<MethodHierarchy, Integer> hierarchyIds = new IdentityHashMap<>();
+        private final List<MethodHierarchy> hierarchies = new ArrayList<>();
+
+        Writer(Classpath classpath) {
+            this.classpath = classpath;
+        }
+
+        void writeModel(DataOutputStream out) throws IOException {
+            List<JarRootEntry> roots = getRoots(classpath);
+
+            for (JarRootEntry jar : roots) {
+                for (JarClassEntry c : jar.getAllClasses()) {
+                    classIds.put(c, classIds.size());
+
+                    for (JarMethodEntry m : c.getMethods()) {
+                        if (m.hierarchy != null && !hierarchyIds.containsKey(m.hierarchy)) {
+                            hierarchyIds.put(m.hierarchy, hierarchies.size());
+                            hierarchies.add(m.hierarchy);
+                        }
+                    }
+                }
+            }
+
+            out.writeInt(roots.size());
+            for (JarRootEntry jar : roots) {
+                writeHash(out, jar.hash);
+                out.writeInt(jar.allClasses.size());
+                for (JarClassEntry c : jar.getAllClasses()) {
+                    writeClass(out, c);
+                }
+            }
+
+            out.writeInt(hierarchies.size());
+            for (MethodHierarchy hierarchy : hierarchies) {
+                writeString(out, hierarchy.method);
+            }
+            for (MethodHierarchy hierarchy : hierarchies) {
+                out.writeBoolean(hierarchy.populated);
+                out.writeBoolean(hierarchy.fromLibrary);
+                writeMembers(out, hierarchy.members);
+                writeMembers(out, hierarchy.sources);
+                writeHierarchies(out, hierarchy.parents);
+                writeHierarchies(out, hierarchy.children);
+            }
+
+            // references to other classes are written once all of them have ids
+            for (JarRootEntry jar : roots) {
+                for (JarClassEntry c : jar.getAllClasses()) {
+                    out.writeInt(c.innerClasses.size());
+                    for (JarClassEntry inner : c.innerClasses.values()) {
+                        out.writeInt(idOf(classIds, inner));
+                    }
+                }
+            }
+        }
+
+        private void writeClass(DataOutputStream out, JarClassEntry c) throws IOException {
+            writeString(out, c.name);
+            out.writeInt(c.access);
+            out.writeByte(c.side.ordinal());
+            writeString(out, c.declaringClass);
+            writeString(out, c.enclosingClass);
+            writeString(out, c.enclosingMethodName);
+            writeString(out, c.enclosingMethodDescriptor);
+            writeString(out, c.innerName);
+            out.writeInt(c.innerAccess);
+            writeString(out, c.signature);
+            writeString(out, c.superclass);
+            writeStrings(out, c.interfaces);
+            writeStrings(out, c.subclasses);
+            writeStrings(out, c.implementers);
+            writeHash(out, c.hash);
+            out.writeBoolean(c.summaryOnly);
+
+            out.writeInt(c.fields.size());
+            for (JarFieldEntry f : c.getFields()) {
+                writeString(out, f.name);
+                writeString(out, f.desc);
+                writeString(out, f.signature);
+                out.writeInt(f.access);
+                out.writeByte(f.side.ordinal());
+                writeHash(out, f.hash);
+            }
+
+            out.writeInt(c.methods.size());
+            for (JarMethodEntry m : c.getMethods()) {
+                writeString(out, m.name);
+                writeString(out, m.desc);
+                writeString(out, m.signature);
+                out.writeInt(m.access);
+                out.writeByte(m.side.ordinal());
+                writeHash(out, m.hash);
+                writeString(out, m.bridgeMethod);
+                writeString(out, m.specializedMethod);
+                out.writeInt(m.hierarchy == null ? -1 : idOf(hierarchyIds, m.hierarchy));
+            }
+        }
+
+        private void writeMembers(DataOutputStream out, Map<JarClassEntry, JarMethodEntry> members) throws IOException {
+            out.writeInt(members.size());
+            for (Map.Entry<JarClassEntry, JarMethodEntry> e : members.entrySet()) {
+                out.writeInt(idOf(classIds, e.getKey()));
+                writeString(out, e.getValue().getKey());
+            }
+        }
+
+        private void writeHierarchies(DataOutputStream out, Iterable<MethodHierarchy> hierarchies) throws IOException {
+            List<Integer> ids = new ArrayList<>();
+            for (MethodHierarchy hierarchy : hierarchies) {
+                ids.add(idOf(hierarchyIds, hierarchy));
+            }
+
+            out.writeInt(ids.size());
+            for (int id : ids) {
+                out.writeInt(id);
+            }
+        }
+
+        /**
+         * @return the id of the given class or hierarchy
+         * @throws IOException if it is not part of the snapshot, which
+         *  happens if it was not read from any jar of the classpath
+         */
+        private static <T> int idOf(Map<T, Integer> ids, T value) throws IOException {
+            Integer id = ids.get(value);
+
+            if (id == null) {
+                throw new IOException(value + " is not part of the classpath");
+            }
+
+            return id;
+        }
+
+        private void writeStrings(DataOutputStream out, List<String> list) throws IOException {
+            out.writeInt(list.size());
+            for (String s : list) {
+                writeString(out, s);
+            }
+        }
+
+        private void writeString(DataOutputStream out, String s) throws IOException {
+            out.writeInt(s == null ? -1 : strings.computeIfAbsent(s, key -> strings.size()));
+        }
+
+        private static void writeHash(DataOutputStream out, byte[] hash) throws IOException {
+            out.writeShort(hash.length);
+            out.write(hash);
+        }
+    }
+
+    private static class Reader {
+
+        private final Classpath classpath;
+        private final String[] strings;
+        private final List<JarClassEntry> classes = new ArrayList<>();
+        private final List<MethodHierarchy> hierarchies = new ArrayList<>();
+        private final Map<JarMethodEntry, Integer> hierarchyIds = new IdentityHashMap<>();
+
+        Reader(Classpath classpath, String[] strings) {
+            this.classpath = classpath;
+            this.strings = strings;
+        }
+
+        void readModel(DataInputStream in) throws IOException {
+            List<JarRootEntry> roots = getRoots(classpath);
+
+            if (in.readInt() != roots.size()) {
+                throw new IOException("snapshot does not match the classpath");
+            }
+
+            for (JarRootEntry jar : roots) {
+                jar.hash = readHash(in);
+                int classCount = in.readInt();
+                for (int i = 0; i < classCount; i++) {
+                    classes.add(readClass(in, jar));
+                }
+            }
+
+            int hierarchyCount = in.readInt();
+            for (int i = 0; i < hierarchyCount; i++) {
+                hierarchies.add(new MethodHierarchy(readString(in)));
+            }
+            for (MethodHierarchy hierarchy : hierarchies) {
+                hierarchy.populated = in.readBoolean();
+                hierarchy.fromLibrary = in.readBoolean();
+                readMembers(in, hierarchy.members::put);
+                readMembers(in, hierarchy::addSource);
+                readHierarchies(in, hierarchy::addParent);
+                readHierarchies(in, hierarchy::addChild);
+            }
+            for (MethodHierarchy hierarchy : hierarchies) {
+                hierarchy.compact();
+            }
+            for (Map.Entry<JarMethodEntry, Integer> e : hierarchyIds.entrySet()) {
+                e.getKey().hierarchy = hierarchies.get(e.getValue());
+            }
+
+            for (JarClassEntry c : classes) {
+                int innerCount = in.readInt();
+                for (int i = 0; i < innerCount; i++) {
+                    JarClassEntry inner = classes.get(in.readInt());
+                    c.innerClasses.put(inner.name, inner);
+                }
+            }
+        }
+
+        private JarClassEntry readClass(DataInputStream in, JarRootEntry jar) throws IOException {
+            ClassEntryPopulator populator = new ClassEntryPopulator();
+
+            populator.name = readString(in);
+            populator.access = in.readInt();
+            populator.side = SIDES[in.readByte()];
+            // the nested class info was only stored if the class is nested
+            populator.nested = true;
+            populator.declaringClassName = readString(in);
+            populator.enclosingClassName = readString(in);
+            populator.enclosingMethodName = readString(in);
+            populator.enclosingMethodDescriptor = readString(in);
+            populator.innerName = readString(in);
+            populator.innerAccess = in.readInt();
+            populator.signature = readString(in);
+            populator.superclass = readString(in);
+            populator.interfaces = readStrings(in).toArray(new String[0]);
+
+            JarClassEntry c = jar.getClass(populator.name, populator);
+
+            c.subclasses.addAll(readStrings(in));
+            c.implementers.addAll(readStrings(in));
+            c.hash = readHash(in);
+            c.summaryOnly = in.readBoolean();
+
+            int fieldCount = in.readInt();
+            for (int i = 0; i < fieldCount; i++) {
+                JarFieldEntry f = new JarFieldEntry(0, readString(in), readString(in), readString(in), c.name);
+                f.setAccess(in.readInt());
+                f.setSide(SIDES[in.readByte()]);
+                f.hash = readHash(in);
+
+                c.putField(f);
+            }
+
+            int methodCount = in.readInt();
+            for (int i = 0; i < methodCount; i++) {
+                JarMethodEntry m = new JarMethodEntry(0, readString(in), readString(in), readString(in), c.name);
+                m.setAccess(in.readInt());
+                m.setSide(SIDES[in.readByte()]);
+                m.hash = readHash(in);
+                m.bridgeMethod = readString(in);
+                m.specializedMethod = readString(in);
+
+                c.putMethod(m);
+
+                int hierarchyId = in.readInt();
+                if (hierarchyId >= 0) {
+                    hierarchyIds.put(m, hierarchyId);
+                }
+            }
+            c.sortMembers();
+
+            return c;
+        }
+
+        private void readMembers(DataInputStream in, BiConsumer<JarClassEntry, JarMethodEntry> members) throws IOException {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                JarClassEntry c = classes.get(in.readInt());
+                members.accept(c, c.getMethod(readString(in)));
+            }
+        }
+
+        private void readHierarchies(DataInputStream in, Consumer<MethodHierarchy> hierarchies) throws IOException {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                hierarchies.accept(this.hierarchies.get(in.readInt()));
+            }
+        }
+
+        private List<String> readStrings(DataInputStream in) throws IOException {
+            int count = in.readInt();
+            List<String> list = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                list.add(readString(in));
+            }
+            return list;
+        }
+
+        private String readString(DataInputStream in) throws IOException {
+            int index = in.readInt();
+            return index < 0 ? null : strings[index];
+        }
+
+        private static byte[] readHash(DataInputStream in) throws IOException {
+            byte[] hash = new byte[in.readUnsignedShort()];
+            in.readFully(hash);
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2026 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.stitch.representation;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.objectweb.asm.Type;
+
+/**
+ * Parsed method descriptors of a classpath, so that each distinct
+ * descriptor is only parsed once.
+ */
+final class DescriptorTable {
+
+    private final Map<String, MethodDescriptor> descriptors = new ConcurrentHashMap<>();
+    private final SymbolTable symbols;
+
+    DescriptorTable(SymbolTable symbols) {
+        this.symbols = symbols;
+    }
+
+    /**
+     * @return the parsed form of the given method descriptor
+     */
+    MethodDescriptor get(String desc) {
+        MethodDescriptor descriptor = descriptors.get(desc);
+
+        if (descriptor == null) {
+            descriptor = parse(desc);
+
+            MethodDescriptor existing = descriptors.putIfAbsent(desc, descriptor);
+            if (existing != null) {
+                descriptor = existing;
+            }
+        }
+
+        return descriptor;
+    }
+
+    private MethodDescriptor parse(String desc) {
+        Type type = Type.getMethodType(desc);
+        Type[] argTypes = type.getArgumentTypes();
+
+        TypeRef[] arguments = new TypeRef[argTypes.length];
+        for (int i = 0; i < argTypes.length; i++) {
+            arguments[i] = parse(argTypes[i]);
+        }
+
+        return new MethodDescriptor(arguments, parse(type.getReturnType()));
+    }
+
+    private TypeRef parse(Type type) {
+        switch (type.getSort()) {
+        case Type.ARRAY:
+            return new TypeRef(Type.ARRAY, type.getDimensions(), type.getDescriptor(), parse(type.getElementType()), null);
+        case Type.OBJECT:
+            return new TypeRef(Type.OBJECT, 0, type.getDescriptor(), null, symbols.get(type.getInternalName()));
+        default:
+            return new TypeRef(type.getSort(), 0, type.getDescriptor(), null, null);
+        }
+    }
+
+    static final class MethodDescriptor {
+
+        final TypeRef[] arguments;
+        final TypeRef returnType;
+
+        MethodDescriptor(TypeRef[] arguments, TypeRef returnType) {
+            this.arguments = arguments;
+            this.returnType = returnType;
+        }
+    }
+
+    /**
+     * A parsed field, argument or return type.
+     */
+    static final class TypeRef {
+
+        /** the sort of this type, as in {@link Type#getSort} */
+        final int sort;
+        final int dimensions;
+        final String descriptor;
+        /** the element type, if this is an array type */
+        final TypeRef elementType;
+        /** the internal name of the class, if this is an object type */
+        final String className;
+
+        TypeRef(int sort, int dimensions, String descriptor, TypeRef elementType, String className) {
+            this.sort = sort;
+            this.dimensions = dimensions;
+            this.descriptor = descriptor;
+            this.elementType = elementType;
+            this.className = className;
+        }
+
+        /**
+         * @return the internal name of the class this type refers to,
+         *  or of the element type if this is an array type
+         */
+        String getReferencedClass() {
+            return (elementType == null) ? className : elementType.className;
+        }
+    }
+}
@@ -22,11 +22,11 @@ import java.util.stream.Collectors;
 
 public class JarClassEntry extends AbstractJarEntry
 {
-    private final JarRootEntry jar;
+    final JarRootEntry jar;
 
-    final Map<String, JarClassEntry> innerClasses;
-    final Map<String, JarFieldEntry> fields;
-    final Map<String, JarMethodEntry> methods;
+    final NameTable<JarClassEntry> innerClasses;
+    final NameTable<JarFieldEntry> fields;
+    final NameTable<JarMethodEntry> methods;
     /** outer class for inner classes */
     String declaringClass;
     /** outer class for anonymous and local classes */
@@ -40,71 +40,130 @@ public class JarClassEntry extends AbstractJarEntry
     List<String> interfaces;
     List<String> subclasses;
     List<String> implementers;
+    /** the id of this class in the class graph of its classpath */
+    int graphId = -1;
+    /** whether only the super types and methods of this class were read */
+    boolean summaryOnly;
 
     protected JarClassEntry(String name, JarRootEntry parentJar) {
         super(name, "");
 
         this.jar = parentJar;
 
-        this.innerClasses = new TreeMap<>(Comparator.naturalOrder());
-        this.fields = new TreeMap<>(Comparator.naturalOrder());
-        this.methods = new TreeMap<>(Comparator.naturalOrder());
+        this.innerClasses = new NameTable<>();
+        this.fields = new NameTable<>();
+        this.methods = new NameTable<>();
 
         this.subclasses = new ArrayList<>();
         this.implementers = new ArrayList<>();
     }
 
     protected void populate(ClassEntryPopulator populator) {
+        SymbolTable symbols = jar.symbols;
+
         this.setAccess(populator.access);
         this.setSide(populator.side);
         if (populator.nested) {
-            this.declaringClass = populator.declaringClassName;
-            this.enclosingClass = populator.enclosingClassName;
-            this.enclosingMethodName = populator.enclosingMethodName;
-            this.enclosingMethodDescriptor = populator.enclosingMethodDescriptor;
-            this.innerName = populator.innerName;
+            this.declaringClass = symbols.get(populator.declaringClassName);
+            this.enclosingClass = symbols.get(populator.enclosingClassName);
+            this.enclosingMethodName = symbols.get(populator.enclosingMethodName);
+            this.enclosingMethodDescriptor = symbols.get(populator.enclosingMethodDescriptor);
+            this.innerName = symbols.get(populator.innerName);
             this.innerAccess = populator.innerAccess;
         }
-        this.signature = populator.signature;
-        this.superclass = populator.superclass;
-        this.interfaces = Arrays.asList(populator.interfaces);
+        this.signature = symbols.get(populator.signature);
+        this.superclass = symbols.get(populator.superclass);
+        this.interfaces = Arrays.asList(symbols.getAll(populator.interfaces));
+    }
+
+    void putField(JarFieldEntry field) {
+        field.intern(jar.symbols);
+        field.parent = this;
+        fields.put(field.getKey(), field);
+    }
+
+    void putMethod(JarMethodEntry method) {
+        method.intern(jar.symbols);
+        method.parent = this;
+        methods.put(method.getKey(), method);
+    }
+
+    /**
+     * Sorts the fields and methods of this class, once they are all read,
+     * so that they can be iterated from any thread.
+     */
+    void sortMembers() {
+        fields.sort();
+        methods.sort();
     }
 
     protected void populateSubclasses(Classpath storage) {
-        // java/lang/Object does not have a super class
-        if (superclass != null) {
-            JarClassEntry superEntry = storage.findClass(superclass);
-            if (superEntry != null) {
-                superEntry.subclasses.add(name);
-                if (!superEntry.isMainJar(storage)) {
-                    superEntry.populateSubclasses(storage);
-                }
+        SubtypeRecorder recorder = new SubtypeRecorder();
+        List<JarClassEntry> libraryClasses = new ArrayList<>();
+        populateSubclasses(storage, recorder, libraryClasses);
+        recorder.commit();
+        populateLibrarySubclasses(storage, libraryClasses, new ClassTraversal(storage));
+    }
+
+    /**
+     * Finds the sub type relations of this class, but only records them.
+     * The relations are added once the recorder is committed, so that they
+     * can be found for many classes concurrently. The classes outside the
+     * main jar that the relations depend on are added to the given list.
+     */
+    void populateSubclasses(Classpath storage, SubtypeRecorder recorder, List<JarClassEntry> libraryClasses) {
+        SubtypeWalk walk = new SubtypeWalk(this);
+
+        for (JarClassEntry next; (next = walk.next(storage, recorder)) != null; ) {
+            if (!next.jar.isMainJar(storage)) {
+                libraryClasses.add(next);
             }
         }
+    }
 
-        for (int i = 0; i < interfaces.size(); i++) {
-            JarClassEntry itf = storage.findClass(interfaces.get(i));
-            if (itf != null) {
-                itf.implementers.add(name);
-                if (!itf.isMainJar(storage)) {
-                    itf.populateSubclasses(storage);
+    /**
+     * Finds the sub type relations of the given classes outside the main
+     * jar, and of the classes outside the main jar they depend on. Classes
+     * that the given traversal visited before are skipped, so a traversal
+     * that is shared between calls walks each library class only once.
+     */
+    static void populateLibrarySubclasses(Classpath storage, List<JarClassEntry> classes, ClassTraversal visited) {
+        // library hierarchies can be arbitrarily deep, so they are
+        // walked with an explicit stack
+        SubtypeRecorder recorder = new SubtypeRecorder();
+        Deque<SubtypeWalk> stack = new ArrayDeque<>();
+
+        for (JarClassEntry c : classes) {
+            if (visited.visit(c)) {
+                stack.push(new SubtypeWalk(c));
+            }
+
+            while (!stack.isEmpty()) {
+                JarClassEntry next = stack.peek().next(storage, recorder);
+
+                if (next == null) {
+                    stack.pop();
+                } else if (!next.jar.isMainJar(storage) && visited.visit(next)) {
+                    stack.push(new SubtypeWalk(next));
                 }
             }
         }
 
-        for (JarMethodEntry m : methods.values()) {
-            m.populateSubclasses(storage, this);
-        }
+        recorder.commit();
     }
 
     protected void populateInnerClasses(Classpath storage) {
         JarClassEntry declaringEntry = getDeclaringClass(storage);
         if (declaringEntry != null) {
-            declaringEntry.innerClasses.put(name, this);
+            synchronized (declaringEntry.innerClasses) {
+                declaringEntry.innerClasses.put(name, this);
+            }
         }
         JarClassEntry enclosingEntry = getEnclosingClass(storage);
         if (enclosingEntry != null) {
-            enclosingEntry.innerClasses.put(name, this);
+            synchronized (enclosingEntry.innerClasses) {
+                enclosingEntry.innerClasses.put(name, this);
+            }
         }
     }
 
@@ -114,59 +173,45 @@ public class JarClassEntry extends AbstractJarEntry
         }
     }
 
-    protected void populateMethodHierarchies(Classpath storage) {
-        // populate method hierarchies for this class and its super classes
-        // and join existing hierarchies together if they overlap
-
+    /**
+     * @return this class and its super classes, whose methods are joined
+     *  into method hierarchies, or an empty list if this class has sub
+     *  classes or implementers
+     */
+    List<JarClassEntry> getHierarchyClasses(Classpath storage) {
         // since we're going bottom-up starting only classes without
         // any sub classes or implementers will suffice
         if (!subclasses.isEmpty() || !implementers.isEmpty()) {
-            return;
+            return Collections.emptyList();
         }
 
-        Map<String, MethodHierarchy> hierarchies = new HashMap<>();
-        Queue<JarClassEntry> classes = new ArrayDeque<>();
+        List<JarClassEntry> visited = new ArrayList<>();
+        ClassGraph graph = getGraph(storage);
 
-        classes.add(this);
+        if (graph != null) {
+            visited.add(this);
+            for (int id : graph.getAncestors(this)) {
+                visited.add(graph.get(id));
+            }
+        } else {
+            Queue<JarClassEntry> classes = new ArrayDeque<>();
 
-        while (!classes.isEmpty()) {
-            JarClassEntry c = classes.poll();
+            classes.add(this);
 
-            for (JarMethodEntry m : c.methods.values()) {
-                if (Access.isPrivateOrStatic(m.access) || m.name.charAt(0) == '<') {
-                    if (m.hierarchy == null) {
-                        m.hierarchy = new MethodHierarchy(c, m);
-                    }
-                } else {
-                    String method = m.getKey();
-                    MethodHierarchy hierarchy = hierarchies.get(method);
-
-                    if (hierarchy == null) {
-                        if (m.hierarchy == null) {
-                            m.hierarchy = new MethodHierarchy(method);
-                            m.hierarchy.addMember(storage, c, m);
-                        }
-
-                        hierarchies.put(m.name + m.desc, m.hierarchy);
-                    } else {
-                        if (m.hierarchy == null) {
-                            hierarchy.addMember(storage, c, m);
-                        } else if (m.hierarchy != hierarchy) {
-                            for (Map.Entry<JarClassEntry, JarMethodEntry> e : m.hierarchy.members.entrySet()) {
-                                hierarchy.addMember(storage, e.getKey(), e.getValue());
-                            }
-                        }
-                    }
+            while (!classes.isEmpty()) {
+                JarClassEntry c = classes.poll();
+                visited.add(c);
+
+                JarClassEntry sup = c.getSuperClass(storage);
+                if (sup != null) {
+                    classes.add(sup);
                 }
-            }
 
-            JarClassEntry sup = c.getSuperClass(storage);
-            if (sup != null) {
-                classes.add(sup);
+                classes.addAll(c.getInterfaces(storage));
             }
-
-            classes.addAll(c.getInterfaces(storage));
         }
+
+        return visited;
     }
 
     protected void populateMethodHierarchySources(Classpath storage) {
@@ -181,6 +226,12 @@ public class JarClassEntry extends AbstractJarEntry
         }
     }
 
+    void compactMethodHierarchies() {
+        for (JarMethodEntry m : methods.values()) {
+            m.hierarchy.compact();
+        }
+    }
+
     public String getSignature() {
         return signature;
     }
@@ -238,7 +289,8 @@ public class JarClassEntry extends AbstractJarEntry
     }
 
     public JarClassEntry getSuperClass(Classpath storage) {
-        return storage.getClass(superclass);
+        ClassGraph graph = getGraph(storage);
+        return (graph == null) ? storage.getClass(superclass) : graph.getSuperClass(this);
     }
 
     public List<String> getInterfaceNames() {
@@ -246,10 +298,16 @@ public class JarClassEntry extends AbstractJarEntry
     }
 
     public List<JarClassEntry> getInterfaces(Classpath storage) {
-        return toClassEntryList(storage, interfaces);
+        ClassGraph graph = getGraph(storage);
+        return (graph == null) ? toClassEntryList(storage, interfaces) : graph.getInterfaces(this);
     }
 
     public List<JarClassEntry> getSuperClasses(Classpath storage) {
+        ClassGraph graph = getGraph(storage);
+        if (graph != null) {
+            return graph.getSuperClasses(this);
+        }
+
         List<JarClassEntry> classes = new ArrayList<>();
 
         JarClassEntry superClass = getSuperClass(storage);
@@ -268,6 +326,11 @@ public class JarClassEntry extends AbstractJarEntry
 
     @Override
     public void hash(byte[] parentHash) {
+        // summary only classes are not named, so they need no hashes
+        if (summaryOnly) {
+            return;
+        }
+
         super.hash(parentHash);
 
         for (JarFieldEntry fieldEntry : fields.values()) {
@@ -283,7 +346,8 @@ public class JarClassEntry extends AbstractJarEntry
     }
 
     public List<JarClassEntry> getSubclasses(Classpath storage) {
-        return toClassEntryList(storage, subclasses);
+        ClassGraph graph = getGraph(storage);
+        return (graph == null) ? toClassEntryList(storage, subclasses) : graph.getSubclasses(this);
     }
 
     public List<String> getImplementerNames() {
@@ -291,7 +355,26 @@ public class JarClassEntry extends AbstractJarEntry
     }
 
     public List<JarClassEntry> getImplementers(Classpath storage) {
-        return toClassEntryList(storage, implementers);
+        ClassGraph graph = getGraph(storage);
+        return (graph == null) ? toClassEntryList(storage, implementers) : graph.getImplementers(this);
+    }
+
+    /**
+     * @return the class graph of the given classpath, if it has been
+     *  built and contains this class
+     */
+    ClassGraph getGraph(Classpath storage) {
+        ClassGraph graph = storage.graph;
+        return (graph != null && graph.contains(this)) ? graph : null;
+    }
+
+    /**
+     * @return the class that this class' name resolves to on the classpath,
+     *  which is this class unless it is shadowed by an earlier jar
+     */
+    JarClassEntry resolve(Classpath storage) {
+        ClassGraph graph = getGraph(storage);
+        return (graph != null && graph.isVisible(this)) ? this : storage.getClass(name);
     }
 
     private List<JarClassEntry> toClassEntryList(Classpath storage, List<String> stringList) {
@@ -359,6 +442,11 @@ public class JarClassEntry extends AbstractJarEntry
 
     @Override
     public boolean isSerializable(Classpath storage) {
+        ClassGraph graph = getGraph(storage);
+        if (graph != null) {
+            return graph.isSerializable(this);
+        }
+
         // enums are not used for level serialization in mc
         if (Access.isEnum(access)) {
             return false;
@@ -371,9 +459,108 @@ public class JarClassEntry extends AbstractJarEntry
         return superClass != null && superClass.isSerializable(storage);
     }
 
+    /**
+     * @return whether this class is in the main jar, and was read in full;
+     *  summary only classes are treated as library classes, so that the
+     *  names of their methods are kept
+     */
     @Override
     public boolean isMainJar(Classpath storage) {
-        return jar.isMainJar(storage);
+        return !summaryOnly && jar.isMainJar(storage);
+    }
+
+    /**
+     * @return whether only the super types and methods of this class were read
+     */
+    public boolean isSummaryOnly() {
+        return summaryOnly;
+    }
+
+    /**
+     * Sub type relations that are found for a class, to be added to
+     * the super types in the order in which they were found.
+     */
+    static final class SubtypeRecorder
+    {
+        private final List<List<String>> targets = new ArrayList<>();
+        private final List<String> names = new ArrayList<>();
+
+        void record(List<String> target, String name) {
+            targets.add(target);
+            names.add(name);
+        }
+
+        void commit() {
+            for (int i = 0; i < targets.size(); i++) {
+                targets.get(i).add(names.get(i));
+            }
+
+            targets.clear();
+            names.clear();
+        }
+    }
+
+    /**
+     * The progress of finding the sub type relations of a single class.
+     */
+    private static final class SubtypeWalk
+    {
+        final JarClassEntry c;
+        /** the super class is step -1, the interfaces follow */
+        private int step = -1;
+        private Iterator<JarMethodEntry> methods;
+        private final List<String> dependencies = new ArrayList<>();
+        private int nextDependency;
+
+        SubtypeWalk(JarClassEntry c) {
+            this.c = c;
+        }
+
+        /**
+         * Records the next sub type relation of the class, if any.
+         *
+         * @return the next class that the sub type relations depend on,
+         *  or {@code null} if all of them have been found
+         */
+        JarClassEntry next(Classpath storage, SubtypeRecorder recorder) {
+            while (step < c.interfaces.size()) {
+                boolean isInterface = step >= 0;
+                String superName = isInterface ? c.interfaces.get(step) : c.superclass;
+                step++;
+
+                // java/lang/Object does not have a super class
+                if (superName == null) {
+                    continue;
+                }
+
+                JarClassEntry superEntry = storage.findClass(superName);
+                if (superEntry != null) {
+                    recorder.record(isInterface ? superEntry.implementers : superEntry.subclasses, c.name);
+                    return superEntry;
+                }
+            }
+
+            if (methods == null) {
+                methods = c.methods.values().iterator();
+            }
+
+            while (true) {
+                while (nextDependency < dependencies.size()) {
+                    JarClassEntry dependency = storage.findClass(dependencies.get(nextDependency++));
+                    if (dependency != null) {
+                        return dependency;
+                    }
+                }
+
+                if (!methods.hasNext()) {
+                    return null;
+                }
+
+                dependencies.clear();
+                nextDependency = 0;
+                methods.next().collectSubtypeDependencies(storage, c, dependencies);
+            }
+        }
     }
 
     public static final class ClassEntryPopulator
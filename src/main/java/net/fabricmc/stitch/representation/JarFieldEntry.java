@@ -22,6 +22,8 @@ public class JarFieldEntry extends AbstractJarEntry
     protected String desc;
     protected String signature;
 
+    private String key;
+
     JarFieldEntry(int access, String name, String desc, String signature, String parentName) {
         super(name, parentName);
         this.setAccess(access);
@@ -39,7 +41,18 @@ public class JarFieldEntry extends AbstractJarEntry
 
     @Override
     protected String getKey() {
-        return super.getKey() + desc;
+        String k = key;
+        if (k == null) {
+            key = k = super.getKey() + desc;
+        }
+        return k;
+    }
+
+    @Override
+    void intern(SymbolTable symbols) {
+        super.intern(symbols);
+        desc = symbols.get(desc);
+        signature = symbols.get(signature);
     }
 
     @Override
@@ -56,12 +69,12 @@ public class JarFieldEntry extends AbstractJarEntry
             }
         }
 
-        JarClassEntry parent = storage.getClass(parentName);
-        return parent != null && parent.isSerializable(storage);
+        JarClassEntry c = resolveParent(storage);
+        return c != null && c.isSerializable(storage);
     }
 
     @Override
     public boolean isMainJar(Classpath storage) {
-        return storage.getClass(parentName).isMainJar(storage);
+        return resolveParent(storage).isMainJar(storage);
     }
 }
@@ -17,13 +17,20 @@
 
 package net.fabricmc.stitch.representation;
 
+import java.util.List;
+
 import org.objectweb.asm.Type;
 
+import net.fabricmc.stitch.representation.DescriptorTable.MethodDescriptor;
+import net.fabricmc.stitch.representation.DescriptorTable.TypeRef;
+
 public class JarMethodEntry extends AbstractJarEntry
 {
     protected String desc;
     protected String signature;
 
+    private String key;
+
     MethodHierarchy hierarchy;
 
     String bridgeMethod;
@@ -69,41 +76,38 @@ public class JarMethodEntry extends AbstractJarEntry
     }
 
     public JarClassEntry getParentClass(Classpath storage) {
-        return storage.getClass(parentName);
+        return resolveParent(storage);
     }
 
-    void populateSubclasses(Classpath storage, JarClassEntry c) {
+    /**
+     * Adds the names of the classes that the sub type relations of the
+     * given class depend on through this method to the given list.
+     */
+    void collectSubtypeDependencies(Classpath storage, JarClassEntry c, List<String> classNames) {
         if (specializedMethod != null) {
             JarMethodEntry sm = c.getMethod(specializedMethod);
 
             if (sm != null) {
-                populateSubclasses(storage);
-                sm.populateSubclasses(storage);
+                collectReferencedClasses(storage, classNames);
+                sm.collectReferencedClasses(storage, classNames);
             }
         }
     }
 
-    private void populateSubclasses(Classpath storage) {
-        Type type = Type.getType(desc);
-
-        Type[] argTypes = type.getArgumentTypes();
-        Type returnType = type.getReturnType();
+    private void collectReferencedClasses(Classpath storage, List<String> classNames) {
+        MethodDescriptor descriptor = storage.descriptors.get(desc);
 
-        for (Type argType : argTypes) {
-            populateSubclasses(storage, argType);
+        for (TypeRef argType : descriptor.arguments) {
+            collectReferencedClass(argType, classNames);
         }
-        populateSubclasses(storage, returnType);
+        collectReferencedClass(descriptor.returnType, classNames);
     }
 
-    private void populateSubclasses(Classpath storage, Type type) {
-        if (type.getSort() == Type.ARRAY) {
-            populateSubclasses(storage, type.getElementType());
-        } else if (type.getSort() == Type.OBJECT) {
-            JarClassEntry c = storage.findClass(type.getInternalName());
+    private static void collectReferencedClass(TypeRef type, List<String> classNames) {
+        String className = type.getReferencedClass();
 
-            if (c != null && !c.isMainJar(storage)) {
-                c.populateSubclasses(storage);
-            }
+        if (className != null) {
+            classNames.add(className);
         }
     }
 
@@ -111,13 +115,10 @@ public class JarMethodEntry extends AbstractJarEntry
         String candidate = specializedMethod;
         specializedMethod = null;
 
-        if (candidate != null && c.methods.containsKey(candidate) && existsInSuperClasses(storage, c, name + desc)) {
-            int i = candidate.indexOf('(');
-            String candidateDesc = candidate.substring(i);
-
-            if (areMethodsBridgeCompatible(storage, desc, candidateDesc)) {
-                JarMethodEntry sm = c.methods.get(candidate);
+        JarMethodEntry sm = (candidate == null) ? null : c.methods.get(candidate);
 
+        if (sm != null && existsInSuperClasses(storage, c, getKey())) {
+            if (areMethodsBridgeCompatible(storage, desc, sm.desc)) {
                 specializedMethod = sm.getKey();
                 sm.bridgeMethod = getKey();
             }
@@ -125,23 +126,28 @@ public class JarMethodEntry extends AbstractJarEntry
     }
 
     private static boolean existsInSuperClasses(Classpath storage, JarClassEntry cls, String method) {
-        for (JarClassEntry superClass : cls.getSuperClasses(storage)) {
-            if (superClass.methods.containsKey(method) || existsInSuperClasses(storage, superClass, method)) {
-                return true;
+        ClassGraph graph = cls.getGraph(storage);
+        if (graph != null) {
+            for (int id : graph.getAncestors(cls)) {
+                if (graph.get(id).methods.containsKey(method)) {
+                    return true;
+                }
             }
+
+            return false;
         }
 
-        return false;
+        return new ClassTraversal(storage).anySuperType(cls, (superClass) -> superClass.methods.containsKey(method));
     }
 
     private static boolean areMethodsBridgeCompatible(Classpath storage, String bridgeDescriptor, String specializedDescriptor) {
-        Type bridgeType = Type.getType(bridgeDescriptor);
-        Type specializedType = Type.getType(specializedDescriptor);
+        MethodDescriptor bridgeType = storage.descriptors.get(bridgeDescriptor);
+        MethodDescriptor specializedType = storage.descriptors.get(specializedDescriptor);
 
-        Type[] bridgeArgTypes = bridgeType.getArgumentTypes();
-        Type bridgeReturnType = bridgeType.getReturnType();
-        Type[] specializedArgTypes = specializedType.getArgumentTypes();
-        Type specializedReturnType = specializedType.getReturnType();
+        TypeRef[] bridgeArgTypes = bridgeType.arguments;
+        TypeRef bridgeReturnType = bridgeType.returnType;
+        TypeRef[] specializedArgTypes = specializedType.arguments;
+        TypeRef specializedReturnType = specializedType.returnType;
 
         if (bridgeArgTypes.length != specializedArgTypes.length) {
             return false;
@@ -156,13 +162,13 @@ public class JarMethodEntry extends AbstractJarEntry
         return areTypesBridgeCompatible(storage, bridgeReturnType, specializedReturnType);
     }
 
-    private static boolean areTypesBridgeCompatible(Classpath storage, Type typeForBridge, Type typeForSpecialized) {
-        if (typeForBridge.equals(typeForSpecialized)) {
+    private static boolean areTypesBridgeCompatible(Classpath storage, TypeRef typeForBridge, TypeRef typeForSpecialized) {
+        if (typeForBridge.descriptor.equals(typeForSpecialized.descriptor)) {
             return true;
         }
 
-        int sortForBridge = typeForBridge.getSort();
-        int sortForSpecialized = typeForSpecialized.getSort();
+        int sortForBridge = typeForBridge.sort;
+        int sortForSpecialized = typeForSpecialized.sort;
 
         if (sortForBridge != sortForSpecialized && !(sortForBridge == Type.OBJECT && sortForSpecialized == Type.ARRAY)) {
             return false;
@@ -170,20 +176,20 @@ public class JarMethodEntry extends AbstractJarEntry
 
         switch (sortForBridge) {
         case Type.OBJECT:
-            JarClassEntry clsForBridge = storage.getClass(typeForBridge.getInternalName());
-            JarClassEntry clsForSpecialized = storage.getClass(typeForSpecialized.getInternalName());
+            JarClassEntry clsForBridge = storage.getClass(typeForBridge.className);
 
             if (sortForSpecialized == Type.ARRAY) {
                 return "java/lang/Object".equals(clsForBridge.name);
             } else {
+                JarClassEntry clsForSpecialized = storage.getClass(typeForSpecialized.className);
                 return areClassTypesBridgeCompatible(storage, clsForBridge, clsForSpecialized);
             }
         case Type.ARRAY:
-            if (typeForBridge.getDimensions() != typeForSpecialized.getDimensions()) {
+            if (typeForBridge.dimensions != typeForSpecialized.dimensions) {
                 return false;
             }
 
-            return areTypesBridgeCompatible(storage, typeForBridge.getElementType(), typeForSpecialized.getElementType());
+            return areTypesBridgeCompatible(storage, typeForBridge.elementType, typeForSpecialized.elementType);
         }
 
         return false;
@@ -200,6 +206,11 @@ public class JarMethodEntry extends AbstractJarEntry
             return false;
         }
 
+        ClassGraph graph = clsForSpecialized.getGraph(storage);
+        if (graph != null && graph.contains(clsForBridge)) {
+            return graph.isSuperType(clsForBridge, clsForSpecialized);
+        }
+
         for (JarClassEntry superClsForSpecialized : clsForSpecialized.getSuperClasses(storage)) {
             if (areClassTypesBridgeCompatible(storage, clsForBridge, superClsForSpecialized)) {
                 return true;
@@ -211,7 +222,18 @@ public class JarMethodEntry extends AbstractJarEntry
 
     @Override
     protected String getKey() {
-        return super.getKey() + desc;
+        String k = key;
+        if (k == null) {
+            key = k = super.getKey() + desc;
+        }
+        return k;
+    }
+
+    @Override
+    void intern(SymbolTable symbols) {
+        super.intern(symbols);
+        desc = symbols.get(desc);
+        signature = symbols.get(signature);
     }
 
     @Override
@@ -231,12 +253,12 @@ public class JarMethodEntry extends AbstractJarEntry
             }
         }
 
-        JarClassEntry parent = storage.getClass(parentName);
-        return parent != null && parent.isSerializable(storage);
+        JarClassEntry c = resolveParent(storage);
+        return c != null && c.isSerializable(storage);
     }
 
     @Override
     public boolean isMainJar(Classpath storage) {
-        return storage.getClass(parentName).isMainJar(storage);
+        return resolveParent(storage).isMainJar(storage);
     }
 }
\ No newline at end of file
@@ -17,13 +17,26 @@
 
 package net.fabricmc.stitch.representation;
 
-import java.io.FileInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Consumer;
-import java.util.jar.JarInputStream;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -43,20 +56,158 @@ import net.ornithemc.nester.nest.Nest;
 
 public class JarReader
 {
+    /** the tag of class constants in the constant pool */
+    private static final int CONSTANT_CLASS = 7;
+
+    private static final ThreadLocal<byte[]> CLASS_BUFFER = ThreadLocal.withInitial(() -> new byte[16 * 1024]);
+
     private final Classpath classpath;
 
+    private int threads = 1;
+    private StagePlan plan = StagePlan.FULL;
+    private Pattern summaryOnlyClasses;
+    private File cacheDirectory;
+    private ForkJoinPool pool;
+    /** the classes referenced by the jar, if they are prefetched */
+    private Set<String> references;
+
     public JarReader(Classpath classpath) {
         this.classpath = classpath;
     }
 
+    /**
+     * Sets the number of threads used to parse the class files of the jar.
+     * With more than one thread, the class files are read from the jar
+     * through random access and parsed in parallel, and the classes are
+     * processed in parallel in the later stages as well. The resulting
+     * model is the same as for a single thread.
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("thread count cannot be less than 1!");
+        }
+
+        this.threads = threads;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets which stages are run. By default all of them are.
+     */
+    public void setStagePlan(StagePlan plan) {
+        this.plan = plan;
+    }
+
+    public StagePlan getStagePlan() {
+        return plan;
+    }
+
+    /**
+     * Sets the pattern that matches the names, in internal form, of the
+     * classes of the jar that are only read as summaries. This is meant
+     * for libraries that are shaded into the jar: their super types and
+     * methods are known for the method hierarchies, but method bodies and
+     * fields are not read, no bridge methods are found, and their entries
+     * are not hashed. Summary only classes are not part of the main jar
+     * as far as naming is concerned, so the names of their methods are
+     * kept, as they are for library classes.
+     */
+    public void setSummaryOnlyClasses(Pattern pattern) {
+        this.summaryOnlyClasses = pattern;
+    }
+
+    public Pattern getSummaryOnlyClasses() {
+        return summaryOnlyClasses;
+    }
+
+    private boolean isSummaryOnly(String className) {
+        return this.summaryOnlyClasses != null && this.summaryOnlyClasses.matcher(className).matches();
+    }
+
+    /**
+     * Sets the directory in which snapshots of the populated classpath are
+     * cached. If a snapshot for the same jar, libraries, nests and salt
+     * exists, it is read instead of running the stages again.
+     */
+    public void setCacheDirectory(File cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+    }
+
+    public File getCacheDirectory() {
+        return cacheDirectory;
+    }
+
     public void apply() throws IOException {
         apply(new byte[] { });
     }
 
     public void apply(byte[] salt) throws IOException {
+        if (this.threads > 1) {
+            this.pool = new ForkJoinPool(this.threads);
+        }
+
+        try {
+            this.applyStages(salt);
+        } finally {
+            if (this.pool != null) {
+                this.pool.shutdown();
+                this.pool = null;
+            }
+
+            this.closeArchives();
+        }
+    }
+
+    private void closeArchives() throws IOException {
+        IOException exception = null;
+
+        for (JarRootEntry jar : this.classpath.classpath) {
+            try {
+                jar.closeArchive();
+            } catch (IOException e) {
+                if (exception == null) {
+                    exception = e;
+                } else {
+                    exception.addSuppressed(e);
+                }
+            }
+        }
+
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    private void applyStages(byte[] salt) throws IOException {
+        File snapshot = (this.cacheDirectory == null) ? null : ClasspathSnapshot.getFile(this.cacheDirectory, this.classpath, this.plan, this.summaryOnlyClasses, salt);
+
+        if (snapshot != null && snapshot.isFile()) {
+            try {
+                if (ClasspathSnapshot.read(snapshot, this.classpath)) {
+                    if (this.plan.populatesHierarchies()) {
+                        this.classpath.graph = ClassGraph.build(this.classpath);
+                    }
+                    System.err.println("Read " + this.classpath.getJar().getAllClasses().size() + " (" + this.classpath.getJar().getClasses().size() + ") classes from snapshot " + snapshot.getName() + ".");
+                    System.err.println("- Done. -");
+                    return;
+                }
+            } catch (IOException e) {
+                System.err.println("Could not read snapshot " + snapshot + ": " + e);
+            }
+        }
+
         // Stage 1: read .JAR class/field/method meta
+        long start = System.nanoTime();
+        if (this.pool != null && this.plan.populatesHierarchies()) {
+            // the library classes the jar refers to are parsed in
+            // parallel before they are needed to find sub classes
+            this.references = new LinkedHashSet<>();
+        }
         this.readJar(this.classpath.getJar());
-        System.err.println("Read " + this.classpath.getJar().getAllClasses().size() + " (" + this.classpath.getJar().getClasses().size() + ") classes.");
+        printStage("Read " + this.classpath.getJar().getAllClasses().size() + " (" + this.classpath.getJar().getClasses().size() + ") classes.", start);
         int missing = 0;
         for (Nest nest : this.classpath.getNests()) {
             String cls = nest.enclClassName;
@@ -79,275 +230,484 @@ public class JarReader
             System.err.println("Read " + missing + " missing classes from nests");
         }
 
-        // Stage 2: read classpath class/method meta
-        for (JarRootEntry lib : this.classpath.classpath) {
-            if (lib != this.classpath.getJar()) {
-                this.readClasspath(lib);
+        if (this.plan.populatesHierarchies()) {
+            // Stage 2: read classpath class/method meta
+            start = System.nanoTime();
+            for (JarRootEntry lib : this.classpath.classpath) {
+                if (lib != this.classpath.getJar()) {
+                    this.readClasspath(lib);
+                }
             }
-        }
-        System.err.println("Read libraries.");
-
-        // Stage 2: find subclasses
-        this.classpath.getJar().getAllClasses().forEach((c) -> c.populateSubclasses(this.classpath));
-        System.err.println("Populated subclass entries.");
+            printStage("Read libraries.", start);
 
-        // Stage 3: find inner classes
-        this.classpath.getJar().getAllClasses().forEach((c) -> c.populateInnerClasses(this.classpath));
-        System.err.println("Populated inner class entries.");
-
-        // Stage 4: find bridge methods
-        this.classpath.getJar().getAllClasses().forEach((c) -> c.populateBridgeMethods(this.classpath));
-        System.err.println("Populated bridge methods.");
+            if (this.references != null) {
+                start = System.nanoTime();
+                int prefetched = this.prefetchClasses();
+                printStage("Prefetched " + prefetched + " library classes.", start);
+            }
 
-        // Stage 5: find method hierarchies
-        this.classpath.getJar().getAllClasses().forEach((c) -> c.populateMethodHierarchies(this.classpath));
-        this.classpath.getJar().getAllClasses().forEach((c) -> c.populateMethodHierarchySources(this.classpath));
-        this.classpath.getJar().getAllClasses().forEach((c) -> c.populateMethodHierarchyRelations(this.classpath));
-        System.err.println("Populated method hierarchies.");
+            // Stage 2: find subclasses
+            start = System.nanoTime();
+            this.populateSubclasses();
+            this.classpath.graph = ClassGraph.build(this.classpath);
+            printStage("Populated subclass entries.", start);
+
+            // Stage 3: find inner classes
+            start = System.nanoTime();
+            this.forEachClass((c) -> c.populateInnerClasses(this.classpath));
+            printStage("Populated inner class entries.", start);
+
+            // Stage 4: find bridge methods
+            start = System.nanoTime();
+            this.forEachClass((c) -> c.populateBridgeMethods(this.classpath));
+            printStage("Populated bridge methods.", start);
+
+            // Stage 5: find method hierarchies
+            start = System.nanoTime();
+            this.populateMethodHierarchies();
+            printStage("Populated method hierarchies.", start);
+        }
 
         // Stage 6: hashing
-        this.classpath.getJar().hash(salt);
-        System.err.println("Hashed jar entries.");
+        if (this.plan.hashesEntries()) {
+            start = System.nanoTime();
+            this.hash(salt);
+            printStage("Hashed jar entries.", start);
+        }
 
+        int archiveHits = 0;
+        int archiveMisses = 0;
         for (JarRootEntry jar : classpath.classpath) {
             jar.classQueue.clear();
+
+            archiveHits += jar.getArchiveHits();
+            archiveMisses += jar.getArchiveMisses();
+        }
+        this.classpath.index.clearOwners();
+        System.err.println("Opened " + archiveMisses + " archives, reused them " + archiveHits + " times.");
+        System.err.println("Interned " + this.classpath.symbols.size() + " symbols.");
+        System.err.println("Looked up classes " + this.classpath.getClassLookups() + " times.");
+
+        if (snapshot != null) {
+            try {
+                ClasspathSnapshot.write(snapshot, this.classpath);
+                System.err.println("Wrote snapshot " + snapshot.getName() + ".");
+            } catch (IOException | RuntimeException e) {
+                // the model is complete, it is just not cached
+                System.err.println("Could not write snapshot " + snapshot + ": " + e);
+            }
         }
 
         System.err.println("- Done. -");
     }
 
     private void readJar(JarRootEntry jar) throws IOException {
-        try (FileInputStream fileStream = new FileInputStream(jar.file)) {
-            try (JarInputStream jarStream = new JarInputStream(fileStream)) {
-                java.util.jar.JarEntry entry;
+        // the archive is read through its central directory rather than
+        // as a jar stream, which skips signature verification and gives
+        // the uncompressed size of each class file up front
+        ZipFile zip = jar.getArchive();
+        List<ZipEntry> entries = new ArrayList<>();
 
-                while ((entry = jarStream.getNextJarEntry()) != null) {
-                    if (!entry.getName().endsWith(".class")) {
+        for (Enumeration<? extends ZipEntry> it = zip.entries(); it.hasMoreElements(); ) {
+            ZipEntry entry = it.nextElement();
+
+            if (entry.getName().endsWith(".class")) {
+                entries.add(entry);
+            }
+        }
+
+        if (this.pool == null) {
+            for (ZipEntry entry : entries) {
+                this.readClass(zip, entry).commit(jar);
+            }
+        } else {
+            // parse in parallel, but commit in jar order so the
+            // resulting model is the same as for the sequential read
+            List<JarClassVisitor> visitors = this.invoke(() -> entries.parallelStream().map(entry -> {
+                try {
+                    return this.readClass(zip, entry);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).collect(Collectors.toList()));
+
+            for (JarClassVisitor visitor : visitors) {
+                visitor.commit(jar);
+
+                if (this.references != null) {
+                    this.addReferences(visitor);
+                }
+            }
+        }
+    }
+
+    private JarClassVisitor readClass(ZipFile zip, ZipEntry entry) throws IOException {
+        return readClassFile(zip, entry, reader -> this.readClass(entry, reader));
+    }
+
+    private JarClassVisitor readClass(ZipEntry entry, ClassReader reader) {
+        JarClassVisitor visitor;
+
+        String className = entry.getName().substring(0, entry.getName().length() - ".class".length());
+
+        boolean summaryOnly = this.isSummaryOnly(className);
+        int flags = ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES;
+
+        // method bodies are only read to find bridge methods, which
+        // plans without the hierarchy stages never look at
+        if (summaryOnly || !this.plan.populatesHierarchies()) {
+            flags |= ClassReader.SKIP_CODE;
+        }
+
+        visitor = new JarClassVisitor(summaryOnly);
+        reader.accept(visitor, flags);
+
+        // the references are only collected for the prefetch, which
+        // is part of the hierarchy stages
+        if (this.references != null) {
+            visitor.references = readClassReferences(reader);
+        }
+
+        return visitor;
+    }
+
+    /**
+     * @return the names of the classes in the constant pool of the given
+     *  class file, with array types replaced by their element types
+     */
+    private static List<String> readClassReferences(ClassReader reader) {
+        List<String> names = new ArrayList<>();
+        char[] buffer = new char[reader.getMaxStringLength()];
+
+        for (int i = 1; i < reader.getItemCount(); i++) {
+            int offset = reader.getItem(i);
+
+            // the second slot of long and double constants has no offset
+            if (offset > 0 && reader.readByte(offset - 1) == CONSTANT_CLASS) {
+                String name = reader.readUTF8(offset, buffer);
+
+                if (name.charAt(0) == '[') {
+                    int dimensions = name.lastIndexOf('[') + 1;
+
+                    if (name.charAt(dimensions) != 'L') {
                         continue;
                     }
 
-                    ClassReader reader = new ClassReader(jarStream);
-                    ClassVisitor visitor = new ClassVisitor(StitchUtil.ASM_VERSION, null)
-                    {
-                        private final Set<JarFieldEntry> fields = new LinkedHashSet<>();
-                        private final Set<JarMethodEntry> methods = new LinkedHashSet<>();
-                        private ClassEntryPopulator populator;
-                        private long startedAt;
-
-                        @SuppressWarnings("deprecation")
-                        @Override
-                        public void visit(final int version, final int access, final String name, final String signature,
-                                          final String superName, final String[] interfaces) {
-//                            startedAt = System.nanoTime();
-                            populator = new ClassEntryPopulator();
-
-                            populator.access = access;
-                            populator.name = name;
-                            populator.signature = signature;
-                            populator.superclass = superName;
-                            populator.interfaces = interfaces;
-
-                            super.visit(version, access, name, signature, superName, interfaces);
-                        }
+                    name = name.substring(dimensions + 1, name.length() - 1);
+                }
 
-                        @Override
-                        public FieldVisitor visitField(final int access, final String name, final String descriptor,
-                                                       final String signature, final Object value) {
-                            JarFieldEntry field = new JarFieldEntry(access, name, descriptor, signature, populator.name);
-                            fields.add(field);
+                names.add(name);
+            }
+        }
 
-                            return new FieldVisitor(StitchUtil.ASM_VERSION, super.visitField(access, name, descriptor, signature, value)) {
+        return names;
+    }
 
-                                @Override
-                                public AnnotationVisitor visitAnnotation(final String descriptor, final boolean visible) {
-                                    return new EnvironmentAnnotationReader(StitchUtil.ASM_VERSION, super.visitAnnotation(descriptor, visible), descriptor, field::setSide);
-                                }
-                            };
-                        }
+    private void addReferences(JarClassVisitor visitor) {
+        this.references.addAll(visitor.references);
 
-                        @Override
-                        public MethodVisitor visitMethod(final int access, final String name, final String descriptor,
-                                                         final String signature, final String[] exceptions) {
-                            JarMethodEntry method = new JarMethodEntry(access, name, descriptor, signature, populator.name);
-                            methods.add(method);
-
-                            return new MethodVisitor(StitchUtil.ASM_VERSION, super.visitMethod(access, name, descriptor, signature, exceptions)) {
-
-                                private int invocations;
-                                private boolean potentialBridge = true;
-                                private String potentialSpecializedMethod;
-
-                                @Override
-                                public AnnotationVisitor visitAnnotation(final String descriptor, final boolean visible) {
-                                    return new EnvironmentAnnotationReader(StitchUtil.ASM_VERSION, super.visitAnnotation(descriptor, visible), descriptor, method::setSide);
-                                }
-
-                                @Override
-                                public void visitInsn(int opcode) {
-                                    switch (opcode) {
-                                    case Opcodes.IRETURN:
-                                    case Opcodes.LRETURN:
-                                    case Opcodes.FRETURN:
-                                    case Opcodes.DRETURN:
-                                    case Opcodes.ARETURN:
-                                    case Opcodes.RETURN:
-                                        break;
-                                    default:
-                                        potentialBridge = false;
-                                    }
-                                }
-
-                                @Override
-                                public void visitIntInsn(int opcode, int operand) {
-                                    potentialBridge = false;
-                                }
-
-                                @Override
-                                public void visitVarInsn(int opcode, int varIndex) {
-                                    switch (opcode) {
-                                    case Opcodes.ILOAD:
-                                    case Opcodes.LLOAD:
-                                    case Opcodes.FLOAD:
-                                    case Opcodes.DLOAD:
-                                    case Opcodes.ALOAD:
-                                        break;
-                                    default:
-                                        potentialBridge = false;
-                                    }
-                                }
-
-                                @Override
-                                public void visitTypeInsn(int opcode, String type) {
-                                    if (opcode != Opcodes.CHECKCAST) {
-                                        potentialBridge = false;
-                                    }
-                                }
-
-                                @Override
-                                public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
-                                    potentialBridge = false;
-                                }
-
-                                @Override
-                                public void visitMethodInsn(int opcode, String invokedMethodOwner, String invokedMethodName, String invokedMethodDescriptor, boolean isInterface) {
-                                    switch (opcode) {
-                                    case Opcodes.INVOKEINTERFACE:
-                                    case Opcodes.INVOKESPECIAL:
-                                    case Opcodes.INVOKEVIRTUAL:
-                                        if (++invocations == 1) {
-                                            if (invokedMethodOwner.equals(populator.name) && !invokedMethodDescriptor.equals(descriptor)) {
-                                                potentialSpecializedMethod = invokedMethodName + invokedMethodDescriptor;
-                                            }
-                                        } else {
-                                            potentialBridge = false;
-                                        }
-                                        break;
-                                    default:
-                                        potentialBridge = false;
-                                    }
-                                }
-
-                                @Override
-                                public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle, Object... bootstrapMethodArguments) {
-                                    potentialBridge = false;
-                                }
-
-                                @Override
-                                public void visitJumpInsn(int opcode, Label label) {
-                                    potentialBridge = false;
-                                }
-
-                                @Override
-                                public void visitEnd() {
-                                    if (potentialBridge && potentialSpecializedMethod != null) {
-                                        method.setSpecializedMethod(potentialSpecializedMethod);
-                                    }
-                                }
-                            };
-                        }
+        // the descriptors of bridge methods are walked to find sub classes
+        for (JarMethodEntry method : visitor.methods) {
+            String specializedMethod = method.getSpecializedMethodName();
 
-                        @Override
-                        public AnnotationVisitor visitAnnotation(final String descriptor, final boolean visible) {
-                            return new EnvironmentAnnotationReader(StitchUtil.ASM_VERSION, super.visitAnnotation(descriptor, visible), descriptor, side -> populator.side = side);
-                        }
+            if (specializedMethod != null) {
+                this.addReferences(method.getDescriptor());
+                this.addReferences(specializedMethod.substring(specializedMethod.indexOf('(')));
+            }
+        }
+    }
 
-                        @Override
-                        public void visitOuterClass(final String owner, final String name, final String descriptor) {
-                            populator.enclosingClassName = owner;
-                            populator.enclosingMethodName = name;
-                            populator.enclosingMethodDescriptor = descriptor;
+    private void addReferences(String descriptor) {
+        DescriptorTable.MethodDescriptor parsed = this.classpath.descriptors.get(descriptor);
 
-                            super.visitOuterClass(owner, name, descriptor);
-                        }
+        for (DescriptorTable.TypeRef type : parsed.arguments) {
+            String className = type.getReferencedClass();
+            if (className != null) {
+                this.references.add(className);
+            }
+        }
 
-                        @Override
-                        public void visitInnerClass(final String name, final String outerName, final String innerName,
-                                                    final int access) {
-                            if (populator.name.equals(name)) {
-                                populator.nested = true; 
-                                populator.declaringClassName = outerName;
-                                populator.innerName = innerName;
-                                populator.innerAccess = access;
-                            }
+        String className = parsed.returnType.getReferencedClass();
+        if (className != null) {
+            this.references.add(className);
+        }
+    }
 
-                            super.visitInnerClass(name, outerName, innerName, access);
-                        }
+    /**
+     * Parses the library and JDK classes that the jar refers to, and their
+     * super types, in parallel batches. The summaries are cached, so that
+     * finding the sub classes does not have to wait for the archives. No
+     * class entries are created, so the model is the same as without it.
+     *
+     * @return the number of classes that were parsed or found in the cache
+     */
+    private int prefetchClasses() throws IOException {
+        Set<String> requested = new HashSet<>();
+        List<String> batch = new ArrayList<>();
+        int prefetched = 0;
+
+        for (String name : this.references) {
+            if (requested.add(name)) {
+                batch.add(name);
+            }
+        }
+        this.references = null;
 
-                        @Override
-                        public void visitEnd() {
-                            JarClassEntry classEntry = jar.getClass(populator.name, populator);
+        while (!batch.isEmpty()) {
+            List<String> names = batch;
+            List<ClassSummary> summaries = this.invoke(() -> names.parallelStream()
+                .map(this::prefetchClass)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
 
-                            for (JarFieldEntry fieldEntry : fields) {
-                                classEntry.fields.put(fieldEntry.getKey(), fieldEntry);
-                            }
-                            for (JarMethodEntry methodEntry : methods) {
-                                classEntry.methods.put(methodEntry.getKey(), methodEntry);
-                            }
+            prefetched += summaries.size();
+            batch = new ArrayList<>();
+
+            for (ClassSummary summary : summaries) {
+                if (summary.superName != null && requested.add(summary.superName)) {
+                    batch.add(summary.superName);
+                }
+                for (String itf : summary.interfaces) {
+                    if (requested.add(itf)) {
+                        batch.add(itf);
+                    }
+                }
+            }
+        }
 
-//                            long timeSpan = (System.nanoTime() - startedAt) / 1000;
-//                            System.err.println("Loaded " + classEntry.getKey() + " in " + timeSpan + "μs");
+        return prefetched;
+    }
 
-                            super.visitEnd();
-                        }
-                    };
-                    reader.accept(visitor, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+    private ClassSummary prefetchClass(String name) {
+        // the classes of the jar itself are already read
+        if (this.classpath.getJar().getClass(name, null) != null) {
+            return null;
+        }
+
+        JarRootEntry owner = this.classpath.index.getOwner(name);
+
+        if (owner == null) {
+            return JdkIndex.get().getClass(name);
+        }
+
+        try {
+            return owner.library.getClass(owner, name);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the given class file into a buffer that is reused by the
+     * current thread, and passes a reader over it to the given function.
+     * The reader must not be used once the function returns.
+     */
+    static <T> T readClassFile(ZipFile zip, ZipEntry entry, Function<ClassReader, T> function) throws IOException {
+        return function.apply(readIntoBuffer(zip, entry));
+    }
+
+    private static ClassReader readIntoBuffer(ZipFile zip, ZipEntry entry) throws IOException {
+        byte[] buffer = CLASS_BUFFER.get();
+        long size = entry.getSize();
+
+        if (size > buffer.length) {
+            buffer = new byte[(int) size];
+            CLASS_BUFFER.set(buffer);
+        }
+
+        int length = 0;
+
+        try (InputStream is = zip.getInputStream(entry)) {
+            int n;
+
+            while ((n = is.read(buffer, length, buffer.length - length)) > 0) {
+                length += n;
+
+                // the size in the central directory can be missing or wrong
+                if (length == buffer.length) {
+                    int next = is.read();
+
+                    if (next < 0) {
+                        break;
+                    }
+
+                    buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+                    buffer[length++] = (byte) next;
+                    CLASS_BUFFER.set(buffer);
                 }
             }
         }
+
+        return new ClassReader(buffer, 0, length);
     }
 
-    private void readClasspath(JarRootEntry jar) throws IOException {
-        try (FileInputStream fileStream = new FileInputStream(jar.file)) {
-            try (JarInputStream jarStream = new JarInputStream(fileStream)) {
-                java.util.jar.JarEntry entry;
+    private void populateSubclasses() throws IOException {
+        List<JarClassEntry> classes = new ArrayList<>(this.classpath.getJar().getAllClasses());
+        List<JarClassEntry.SubtypeRecorder> recorders;
+        List<List<JarClassEntry>> libraryClasses;
+
+        if (this.pool == null) {
+            recorders = new ArrayList<>();
+            libraryClasses = new ArrayList<>();
+
+            for (JarClassEntry c : classes) {
+                JarClassEntry.SubtypeRecorder recorder = new JarClassEntry.SubtypeRecorder();
+                List<JarClassEntry> dependencies = new ArrayList<>();
+                c.populateSubclasses(this.classpath, recorder, dependencies);
+                recorders.add(recorder);
+                libraryClasses.add(dependencies);
+            }
+        } else {
+            // find the relations in parallel, but add them in class order
+            // so the sub class lists are the same as for the sequential run
+            libraryClasses = classes.stream().map(c -> new ArrayList<JarClassEntry>()).collect(Collectors.toList());
+            recorders = this.invoke(() -> IntStream.range(0, classes.size()).parallel().mapToObj(i -> {
+                JarClassEntry.SubtypeRecorder recorder = new JarClassEntry.SubtypeRecorder();
+                classes.get(i).populateSubclasses(this.classpath, recorder, libraryClasses.get(i));
+                return recorder;
+            }).collect(Collectors.toList()));
+        }
+
+        for (JarClassEntry.SubtypeRecorder recorder : recorders) {
+            recorder.commit();
+        }
+
+        // the library classes that many classes of the jar depend on are
+        // walked once for the whole stage, in the order of the jar classes
+        ClassTraversal visited = new ClassTraversal(this.classpath);
+        for (List<JarClassEntry> dependencies : libraryClasses) {
+            JarClassEntry.populateLibrarySubclasses(this.classpath, dependencies, visited);
+        }
+    }
 
-                while ((entry = jarStream.getNextJarEntry()) != null) {
-                    if (entry.getName().endsWith(".class")) {
-                        jar.classQueue.add(entry.getName().substring(0, entry.getName().length() - ".class".length()));
+    private void populateMethodHierarchies() throws IOException {
+        List<JarClassEntry> classes = new ArrayList<>(this.classpath.getJar().getAllClasses());
+        MethodHierarchyBuilder builder = new MethodHierarchyBuilder(this.classpath);
+
+        if (this.pool == null) {
+            classes.forEach((c) -> builder.add(c.getHierarchyClasses(this.classpath)));
+            builder.build();
+
+            classes.forEach((c) -> c.populateMethodHierarchySources(this.classpath));
+            classes.forEach((c) -> c.populateMethodHierarchyRelations(this.classpath));
+            classes.forEach((c) -> c.compactMethodHierarchies());
+        } else {
+            // walking up the class hierarchy is done in parallel,
+            // the methods are grouped into hierarchies sequentially
+            List<List<JarClassEntry>> hierarchyClasses = this.invoke(() -> classes.parallelStream()
+                .map(c -> c.getHierarchyClasses(this.classpath))
+                .collect(Collectors.toList()));
+
+            hierarchyClasses.forEach(builder::add);
+            builder.build();
+
+            Set<MethodHierarchy> seen = StitchUtil.newIdentityHashSet();
+            List<MethodHierarchy> hierarchies = new ArrayList<>();
+
+            for (JarClassEntry c : classes) {
+                for (JarMethodEntry m : c.getMethods()) {
+                    if (seen.add(m.hierarchy)) {
+                        hierarchies.add(m.hierarchy);
                     }
                 }
             }
+
+            // each hierarchy only modifies itself while finding its sources and links
+            this.invoke(() -> {
+                hierarchies.parallelStream().forEach(h -> {
+                    h.populateSources(this.classpath);
+                    h.populateLinks(this.classpath);
+                });
+                return null;
+            });
+
+            // propagating the library flag depends on the order
+            // in which hierarchies are visited, so is done sequentially
+            classes.forEach((c) -> c.populateMethodHierarchyRelations(this.classpath));
+            hierarchies.forEach(MethodHierarchy::compact);
         }
     }
 
-    static JarClassEntry readFromClasspath(JarRootEntry jar, String name) throws IOException {
-        try (ZipFile zip = new ZipFile(jar.file)) {
-            ZipEntry entry = zip.getEntry(name + ".class");
+    private void hash(byte[] salt) throws IOException {
+        JarRootEntry jar = this.classpath.getJar();
+
+        if (this.pool == null) {
+            jar.hash(salt);
+        } else {
+            // class hashes only depend on the jar hash, so
+            // each class and its members can be hashed separately
+            jar.hashEntry(salt);
+            this.forEachClass((c) -> c.hash(jar.hash));
+        }
+    }
 
-            if (entry != null) {
-                return readFromInputStream(jar, zip.getInputStream(entry));
+    private void forEachClass(Consumer<JarClassEntry> action) throws IOException {
+        if (this.pool == null) {
+            this.classpath.getJar().getAllClasses().forEach(action);
+        } else {
+            List<JarClassEntry> classes = new ArrayList<>(this.classpath.getJar().getAllClasses());
+
+            this.invoke(() -> {
+                classes.parallelStream().forEach(action);
+                return null;
+            });
+        }
+    }
+
+    private static void printStage(String message, long start) {
+        System.err.println(message + " (" + (System.nanoTime() - start) / 1000000 + " ms)");
+    }
+
+    private <T> T invoke(Callable<T> task) throws IOException {
+        try {
+            return this.pool.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while reading " + this.classpath.getJar().getName(), e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
             }
 
-            return null;
+            throw new IOException(cause);
         }
     }
 
+    private void readClasspath(JarRootEntry jar) throws IOException {
+        // only the central directory is needed to list the classes,
+        // the entries themselves are inflated lazily if they are used
+        jar.library = LibraryModel.get(jar.getArchive());
+        this.classpath.queueClasses(jar, jar.library.classNames);
+    }
+
+    static JarClassEntry readFromClasspath(JarRootEntry jar, String name) throws IOException {
+        ClassSummary summary = jar.library.getClass(jar, name);
+        return (summary == null) ? null : summary.materialize(jar);
+    }
+
     static JarClassEntry readFromJdk(JarRootEntry jar, String name) {
+        ClassSummary summary = JdkIndex.get().getClass(name);
+
+        if (summary != null) {
+            return summary.materialize(jar);
+        }
+
+        // not a JDK class, but it may still be on the system class path
         try {
             InputStream is = ClassLoader.getSystemResourceAsStream(name + ".class");
 
             if (is != null) {
-                return readFromInputStream(jar, is);
+                try (InputStream in = is) {
+                    return readFromInputStream(jar, in);
+                }
             }
         } catch (IOException e) {
         }
@@ -356,48 +716,202 @@ public class JarReader
     }
 
     private static JarClassEntry readFromInputStream(JarRootEntry jar, InputStream is) throws IOException {
-        ClassReader reader = new ClassReader(is);
-        ClassVisitor visitor = new ClassVisitor(StitchUtil.ASM_VERSION, null)
-        {
-            private final Set<JarMethodEntry> methods = new LinkedHashSet<>();
-            private ClassEntryPopulator populator;
-
-            @Override
-            public void visit(final int version, final int access, final String name, final String signature,
-                              final String superName, final String[] interfaces) {
-                populator = new ClassEntryPopulator();
-
-                populator.access = access;
-                populator.name = name;
-                populator.signature = signature;
-                populator.superclass = superName;
-                populator.interfaces = interfaces;
-
-                super.visit(version, access, name, signature, superName, interfaces);
-            }
+        return ClassSummary.read(new ClassReader(is)).materialize(jar);
+    }
+
+    /**
+     * Collects the class, field and method meta of a single class file.
+     * The result is only added to the jar once {@link #commit} is called,
+     * so that class files can be parsed on any thread.
+     */
+    private static class JarClassVisitor extends ClassVisitor {
 
-            @Override
-            public MethodVisitor visitMethod(final int access, final String name, final String descriptor,
-                                             final String signature, final String[] exceptions) {
-                methods.add(new JarMethodEntry(access, name, descriptor, signature, populator.name));
+        private final Set<JarFieldEntry> fields = new LinkedHashSet<>();
+        private final Set<JarMethodEntry> methods = new LinkedHashSet<>();
+        private final boolean summaryOnly;
+        private List<String> references;
+        private ClassEntryPopulator populator;
 
-                return super.visitMethod(access, name, descriptor, signature, exceptions);
+        JarClassVisitor(boolean summaryOnly) {
+            super(StitchUtil.ASM_VERSION, null);
+
+            this.summaryOnly = summaryOnly;
+        }
+
+        @SuppressWarnings("deprecation")
+        @Override
+        public void visit(final int version, final int access, final String name, final String signature,
+                          final String superName, final String[] interfaces) {
+            populator = new ClassEntryPopulator();
+
+            populator.access = access;
+            populator.name = name;
+            populator.signature = signature;
+            populator.superclass = superName;
+            populator.interfaces = interfaces;
+
+            super.visit(version, access, name, signature, superName, interfaces);
+        }
+
+        @Override
+        public FieldVisitor visitField(final int access, final String name, final String descriptor,
+                                       final String signature, final Object value) {
+            if (summaryOnly) {
+                return null;
             }
 
-            @Override
-            public void visitEnd() {
-                JarClassEntry classEntry = jar.getClass(populator.name, populator);
+            JarFieldEntry field = new JarFieldEntry(access, name, descriptor, signature, populator.name);
+            fields.add(field);
+
+            return new FieldVisitor(StitchUtil.ASM_VERSION, super.visitField(access, name, descriptor, signature, value)) {
 
-                for (JarMethodEntry methodEntry : methods) {
-                    classEntry.methods.put(methodEntry.getKey(), methodEntry);
+                @Override
+                public AnnotationVisitor visitAnnotation(final String descriptor, final boolean visible) {
+                    return new EnvironmentAnnotationReader(StitchUtil.ASM_VERSION, super.visitAnnotation(descriptor, visible), descriptor, field::setSide);
                 }
+            };
+        }
+
+        @Override
+        public MethodVisitor visitMethod(final int access, final String name, final String descriptor,
+                                         final String signature, final String[] exceptions) {
+            JarMethodEntry method = new JarMethodEntry(access, name, descriptor, signature, populator.name);
+            methods.add(method);
+
+            return new MethodVisitor(StitchUtil.ASM_VERSION, super.visitMethod(access, name, descriptor, signature, exceptions)) {
+
+                private int invocations;
+                private boolean potentialBridge = true;
+                private String potentialSpecializedMethod;
 
-                super.visitEnd();
+                @Override
+                public AnnotationVisitor visitAnnotation(final String descriptor, final boolean visible) {
+                    return new EnvironmentAnnotationReader(StitchUtil.ASM_VERSION, super.visitAnnotation(descriptor, visible), descriptor, method::setSide);
+                }
+
+                @Override
+                public void visitInsn(int opcode) {
+                    switch (opcode) {
+                    case Opcodes.IRETURN:
+                    case Opcodes.LRETURN:
+                    case Opcodes.FRETURN:
+                    case Opcodes.DRETURN:
+                    case Opcodes.ARETURN:
+                    case Opcodes.RETURN:
+                        break;
+                    default:
+                        potentialBridge = false;
+                    }
+                }
+
+                @Override
+                public void visitIntInsn(int opcode, int operand) {
+                    potentialBridge = false;
+                }
+
+                @Override
+                public void visitVarInsn(int opcode, int varIndex) {
+                    switch (opcode) {
+                    case Opcodes.ILOAD:
+                    case Opcodes.LLOAD:
+                    case Opcodes.FLOAD:
+                    case Opcodes.DLOAD:
+                    case Opcodes.ALOAD:
+                        break;
+                    default:
+                        potentialBridge = false;
+                    }
+                }
+
+                @Override
+                public void visitTypeInsn(int opcode, String type) {
+                    if (opcode != Opcodes.CHECKCAST) {
+                        potentialBridge = false;
+                    }
+                }
+
+                @Override
+                public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+                    potentialBridge = false;
+                }
+
+                @Override
+                public void visitMethodInsn(int opcode, String invokedMethodOwner, String invokedMethodName, String invokedMethodDescriptor, boolean isInterface) {
+                    switch (opcode) {
+                    case Opcodes.INVOKEINTERFACE:
+                    case Opcodes.INVOKESPECIAL:
+                    case Opcodes.INVOKEVIRTUAL:
+                        if (++invocations == 1) {
+                            if (invokedMethodOwner.equals(populator.name) && !invokedMethodDescriptor.equals(descriptor)) {
+                                potentialSpecializedMethod = invokedMethodName + invokedMethodDescriptor;
+                            }
+                        } else {
+                            potentialBridge = false;
+                        }
+                        break;
+                    default:
+                        potentialBridge = false;
+                    }
+                }
+
+                @Override
+                public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle, Object... bootstrapMethodArguments) {
+                    potentialBridge = false;
+                }
+
+                @Override
+                public void visitJumpInsn(int opcode, Label label) {
+                    potentialBridge = false;
+                }
+
+                @Override
+                public void visitEnd() {
+                    if (potentialBridge && potentialSpecializedMethod != null) {
+                        method.setSpecializedMethod(potentialSpecializedMethod);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(final String descriptor, final boolean visible) {
+            return new EnvironmentAnnotationReader(StitchUtil.ASM_VERSION, super.visitAnnotation(descriptor, visible), descriptor, side -> populator.side = side);
+        }
+
+        @Override
+        public void visitOuterClass(final String owner, final String name, final String descriptor) {
+            populator.enclosingClassName = owner;
+            populator.enclosingMethodName = name;
+            populator.enclosingMethodDescriptor = descriptor;
+
+            super.visitOuterClass(owner, name, descriptor);
+        }
+
+        @Override
+        public void visitInnerClass(final String name, final String outerName, final String innerName,
+                                    final int access) {
+            if (populator.name.equals(name)) {
+                populator.nested = true; 
+                populator.declaringClassName = outerName;
+                populator.innerName = innerName;
+                populator.innerAccess = access;
             }
-        };
-        reader.accept(visitor, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
 
-        return jar.getClass(reader.getClassName(), null);
+            super.visitInnerClass(name, outerName, innerName, access);
+        }
+
+        void commit(JarRootEntry jar) {
+            JarClassEntry classEntry = jar.getClass(populator.name, populator);
+            classEntry.summaryOnly = summaryOnly;
+
+            for (JarFieldEntry fieldEntry : fields) {
+                classEntry.putField(fieldEntry);
+            }
+            for (JarMethodEntry methodEntry : methods) {
+                classEntry.putMethod(methodEntry);
+            }
+            classEntry.sortMembers();
+        }
     }
 
     private static class EnvironmentAnnotationReader extends AnnotationVisitor {
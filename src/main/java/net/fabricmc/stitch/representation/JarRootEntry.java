@@ -20,21 +20,37 @@ package net.fabricmc.stitch.representation;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipFile;
 
 public class JarRootEntry extends AbstractJarEntry
 {
     final File file;
     final Set<String> classQueue;
-    final Map<String, JarClassEntry> classTree;
-    final Map<String, JarClassEntry> allClasses;
+    final NameTable<JarClassEntry> classTree;
+    final NameTable<JarClassEntry> allClasses;
+    /** the shared model of this jar, if it is a library */
+    LibraryModel library;
+    /** the symbols of the classpath this jar is in */
+    SymbolTable symbols;
+    /** the class index of the classpath this jar is in */
+    ClassIndex index;
+    /** the position of this jar in the search order of its classpath */
+    int rank;
+
+    private ZipFile archive;
+    private int archiveHits;
+    private int archiveMisses;
 
     public JarRootEntry(File file) throws IOException {
         super(file.getName(), "");
 
         this.file = file;
-        this.classQueue = new LinkedHashSet<>();
-        this.classTree = new TreeMap<>(Comparator.naturalOrder());
-        this.allClasses = new TreeMap<>(Comparator.naturalOrder());
+        this.classQueue = ConcurrentHashMap.newKeySet();
+        this.classTree = new NameTable<>();
+        this.allClasses = new NameTable<>();
+        this.symbols = new SymbolTable();
+        this.index = new ClassIndex();
     }
 
     public JarClassEntry getClass(String name, JarClassEntry.ClassEntryPopulator populator) {
@@ -42,21 +58,106 @@ public class JarRootEntry extends AbstractJarEntry
             return null;
         }
 
-        JarClassEntry entry = allClasses.get(name);
+        // the class index is safe to read from any thread, but it only has
+        // this class if no jar before this one in the classpath has it too
+        JarClassEntry entry = index.get(name);
 
+        if (entry != null && entry.jar != this) {
+            synchronized (allClasses) {
+                entry = allClasses.get(name);
+            }
+        }
         if (entry == null && populator != null) {
-            entry = new JarClassEntry(name, this);
-            entry.populate(populator);
+            entry = addClass(createClass(name, populator));
+        }
+
+        return entry;
+    }
 
-            allClasses.put(name, entry);
+    /**
+     * Creates an entry for a class of this jar, without adding it yet.
+     */
+    JarClassEntry createClass(String name, JarClassEntry.ClassEntryPopulator populator) {
+        JarClassEntry entry = new JarClassEntry(symbols.get(name), this);
+        entry.populate(populator);
+
+        return entry;
+    }
+
+    /**
+     * Adds the given class to this jar, unless the jar already has a class
+     * with that name. Classes can be added from any thread, but the classes
+     * of this jar must not be iterated while that happens.
+     *
+     * @return the class of this jar with the name of the given class
+     */
+    JarClassEntry addClass(JarClassEntry entry) {
+        synchronized (allClasses) {
+            JarClassEntry existing = allClasses.get(entry.name);
+            if (existing != null) {
+                return existing;
+            }
+
+            allClasses.put(entry.name, entry);
             if (!entry.hasDeclaringClass() && !entry.hasEnclosingClass()) {
-                classTree.put(name, entry);
+                classTree.put(entry.name, entry);
             }
+            // the entry is only published for lookups once it is complete
+            index.add(entry);
         }
 
         return entry;
     }
 
+    /**
+     * Removes all classes from this jar.
+     */
+    void clearClasses() {
+        synchronized (allClasses) {
+            classTree.clear();
+            allClasses.clear();
+        }
+    }
+
+    /**
+     * @return a handle to the archive of this jar, which stays open
+     *  until {@link #closeArchive} is called
+     */
+    synchronized ZipFile getArchive() throws IOException {
+        if (archive == null) {
+            archive = new ZipFile(file);
+            archiveMisses++;
+        } else {
+            archiveHits++;
+        }
+
+        return archive;
+    }
+
+    synchronized void closeArchive() throws IOException {
+        if (archive != null) {
+            try {
+                archive.close();
+            } finally {
+                archive = null;
+            }
+        }
+    }
+
+    /**
+     * @return how many times an open archive handle was reused
+     */
+    public synchronized int getArchiveHits() {
+        return archiveHits;
+    }
+
+    /**
+     * @return how many times the archive had to be opened
+     */
+    public synchronized int getArchiveMisses() {
+        return archiveMisses;
+    }
+
     public Collection<JarClassEntry> getClasses() {
         return classTree.values();
     }
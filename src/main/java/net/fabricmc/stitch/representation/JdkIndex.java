@@ -0,0 +1,343 @@
+/*
+ * Copyright (c) 2026 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.stitch.representation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.ProviderNotFoundException;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.objectweb.asm.ClassReader;
+
+import net.fabricmc.stitch.util.StitchUtil;
+
+/**
+ * A summary of all classes of the running JDK. It is built once from the
+ * runtime image and cached on disk, so that JDK classes can be resolved
+ * without parsing their class files again in every run.
+ *
+ * <p>The cache file is placed in {@code .cache/stitch} in the home
+ * directory of the user, unless the {@code stitch.jdkIndex} system
+ * property points elsewhere. Since the index decides how JDK classes
+ * resolve, a cache file is only read if it is owned by the user and
+ * cannot be written by other users.
+ */
+final class JdkIndex {
+
+    private static final int MAGIC = 0x53544a44; // STJD
+    private static final int VERSION = 2;
+    /** the size of the magic, the version, the length and the checksum */
+    private static final int HEADER_SIZE = 16;
+
+    private static volatile JdkIndex instance;
+
+    private final Map<String, Integer> offsets;
+    private final ByteBuffer records;
+    private final Map<String, ClassSummary> summaries;
+
+    private JdkIndex(Map<String, Integer> offsets, ByteBuffer records) {
+        this.offsets = offsets;
+        this.records = records;
+        this.summaries = new ConcurrentHashMap<>();
+    }
+
+    static JdkIndex get() {
+        JdkIndex index = instance;
+
+        if (index == null) {
+            synchronized (JdkIndex.class) {
+                index = instance;
+
+                if (index == null) {
+                    instance = index = load();
+                }
+            }
+        }
+
+        return index;
+    }
+
+    /**
+     * @return the summary of the JDK class with the given name, or
+     *  {@code null} if the JDK does not have a class with that name
+     */
+    ClassSummary getClass(String name) {
+        Integer offset = offsets.get(name);
+
+        if (offset == null) {
+            return null;
+        }
+
+        return summaries.computeIfAbsent(name, key -> {
+            ByteBuffer in = records.duplicate();
+            in.position(offset);
+            return ClassSummary.read(in);
+        });
+    }
+
+    int size() {
+        return offsets.size();
+    }
+
+    /**
+     * @return a description of the running JDK, which changes when the
+     *  classes of the JDK may change
+     */
+    static String getRuntime() {
+        return System.getProperty("java.vendor") + " " + System.getProperty("java.runtime.version") + " " + System.getProperty("java.home");
+    }
+
+    private static JdkIndex load() {
+        String runtime = getRuntime();
+        String location = System.getProperty("stitch.jdkIndex");
+        File file = (location == null)
+            ? new File(System.getProperty("user.home"), ".cache/stitch/jdk-" + Integer.toHexString(runtime.hashCode()) + ".bin")
+            : new File(location);
+
+        return load(file, runtime);
+    }
+
+    /**
+     * Reads the index from the given file, or builds it and writes it
+     * to that file if it is missing or cannot be read.
+     */
+    static JdkIndex load(File file, String runtime) {
+        if (file.isFile()) {
+            try {
+                if (isTrusted(file.toPath())) {
+                    JdkIndex index = read(file, runtime);
+
+                    if (index != null) {
+                        return index;
+                    }
+                } else {
+                    System.err.println("Not reading JDK class index " + file + " as other users can change it.");
+                }
+            } catch (IOException | RuntimeException e) {
+                // a truncated or corrupt index is rebuilt
+                System.err.println("Could not read JDK class index " + file + ": " + e);
+            }
+        }
+
+        Map<String, ClassSummary> classes;
+
+        try {
+            classes = readRuntimeImage();
+        } catch (IOException e) {
+            System.err.println("Could not index JDK classes: " + e);
+            return new JdkIndex(new HashMap<>(), ByteBuffer.allocate(0));
+        }
+
+        try {
+            byte[] data = write(classes, runtime);
+
+            try {
+                File dir = file.getAbsoluteFile().getParentFile();
+                if (dir != null) {
+                    Files.createDirectories(dir.toPath());
+                }
+                Path tmp = Files.createTempFile(dir == null ? null : dir.toPath(), file.getName(), ".tmp");
+                Files.write(tmp, data);
+                StitchUtil.moveIntoPlace(tmp, file.toPath());
+            } catch (IOException e) {
+                System.err.println("Could not write JDK class index " + file + ": " + e);
+            }
+
+            System.err.println("Indexed " + classes.size() + " JDK classes.");
+
+            return read(ByteBuffer.wrap(data), runtime);
+        } catch (IOException e) {
+            throw new IllegalStateException("unable to index JDK classes", e);
+        }
+    }
+
+    /**
+     * @return whether the given file is owned by the running user, and
+     *  cannot be written by other users; this is only checked on file
+     *  systems with POSIX permissions
+     */
+    static boolean isTrusted(Path file) throws IOException {
+        if (!file.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            return true;
+        }
+
+        UserPrincipal user = file.getFileSystem().getUserPrincipalLookupService().lookupPrincipalByName(System.getProperty("user.name"));
+        if (!user.equals(Files.getOwner(file))) {
+            return false;
+        }
+
+        Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(file);
+        return !permissions.contains(PosixFilePermission.GROUP_WRITE) && !permissions.contains(PosixFilePermission.OTHERS_WRITE);
+    }
+
+    private static Map<String, ClassSummary> readRuntimeImage() throws IOException {
+        Map<String, ClassSummary> classes = new LinkedHashMap<>();
+        FileSystem jrt;
+
+        try {
+            jrt = FileSystems.getFileSystem(URI.create("jrt:/"));
+        } catch (ProviderNotFoundException | FileSystemNotFoundException e) {
+            jrt = null;
+        }
+
+        if (jrt != null) {
+            try (Stream<Path> paths = Files.walk(jrt.getPath("/modules"))) {
+                for (Path path : (Iterable<Path>) paths::iterator) {
+                    // /modules/<module>/<class>.class
+                    if (path.getNameCount() > 2 && path.toString().endsWith(".class") && !path.endsWith("module-info.class")) {
+                        ClassSummary summary = ClassSummary.read(new ClassReader(Files.readAllBytes(path)));
+                        classes.putIfAbsent(summary.name, summary);
+                    }
+                }
+            }
+        } else {
+            // java 8 runtimes keep the JDK classes in the boot class path jars
+            String bootClassPath = System.getProperty("sun.boot.class.path", "");
+
+            for (String entry : bootClassPath.split(File.pathSeparator)) {
+                File jar = new File(entry);
+
+                if (!jar.isFile()) {
+                    continue;
+                }
+
+                try (ZipFile zip = new ZipFile(jar)) {
+                    for (Enumeration<? extends ZipEntry> it = zip.entries(); it.hasMoreElements(); ) {
+                        ZipEntry zipEntry = it.nextElement();
+
+                        if (zipEntry.getName().endsWith(".class")) {
+                            try (InputStream is = zip.getInputStream(zipEntry)) {
+                                ClassSummary summary = ClassSummary.read(new ClassReader(is));
+                                classes.putIfAbsent(summary.name, summary);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        return classes;
+    }
+
+    static byte[] write(Map<String, ClassSummary> classes, String runtime) throws IOException {
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        Map<String, Integer> offsets = new LinkedHashMap<>();
+
+        try (DataOutputStream out = new DataOutputStream(records)) {
+            for (ClassSummary summary : classes.values()) {
+                offsets.put(summary.name, out.size());
+                summary.write(out);
+            }
+        }
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        try (DataOutputStream out = new DataOutputStream(body)) {
+            ClassSummary.writeString(out, runtime);
+            out.writeInt(offsets.size());
+            for (Map.Entry<String, Integer> e : offsets.entrySet()) {
+                ClassSummary.writeString(out, e.getKey());
+                out.writeInt(e.getValue());
+            }
+            records.writeTo(out);
+        }
+
+        CRC32 checksum = new CRC32();
+        checksum.update(body.toByteArray());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(body.size());
+            out.writeInt((int) checksum.getValue());
+            body.writeTo(out);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    static JdkIndex read(File file, String runtime) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), runtime);
+        }
+    }
+
+    /**
+     * The whole index is checked against its checksum up front, as the
+     * class records are only decoded once the classes are looked up.
+     *
+     * @return the index stored in the given buffer, or {@code null} if it
+     *  was written in a different format or for a different runtime, or
+     *  if it is truncated or corrupt
+     */
+    static JdkIndex read(ByteBuffer in, String runtime) {
+        if (in.remaining() < HEADER_SIZE || in.getInt() != MAGIC || in.getInt() != VERSION) {
+            return null;
+        }
+
+        int length = in.getInt();
+        int expected = in.getInt();
+
+        if (length != in.remaining()) {
+            return null;
+        }
+
+        CRC32 checksum = new CRC32();
+        checksum.update(in.duplicate());
+
+        if ((int) checksum.getValue() != expected) {
+            return null;
+        }
+        if (!runtime.equals(ClassSummary.readString(in))) {
+            return null;
+        }
+
+        int count = in.getInt();
+        Map<String, Integer> offsets = new HashMap<>(2 * count);
+
+        for (int i = 0; i < count; i++) {
+            offsets.put(ClassSummary.readString(in), in.getInt());
+        }
+
+        return new JdkIndex(offsets, in.slice());
+    }
+}
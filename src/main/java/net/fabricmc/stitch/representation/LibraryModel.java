@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2026 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.stitch.representation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.google.common.cache.CacheBuilder;
+
+import net.fabricmc.stitch.util.HashUtil;
+
+/**
+ * The classes of a library jar, shared by all classpaths in this process
+ * that use a jar with the same content. Library class files are parsed
+ * into summaries at most once. Each classpath still creates its own class
+ * entries from these summaries, since sub classes and method hierarchies
+ * differ between classpaths.
+ *
+ * <p>Jars are identified by their central directory: the names, checksums
+ * and sizes of all entries.
+ */
+final class LibraryModel {
+
+    /** models are dropped once their memory is needed and no classpath uses them */
+    private static final Map<String, LibraryModel> MODELS = CacheBuilder.newBuilder().softValues().<String, LibraryModel>build().asMap();
+
+    final String key;
+    final List<String> classNames;
+
+    private final Map<String, ClassSummary> summaries;
+
+    private LibraryModel(String key, List<String> classNames) {
+        this.key = key;
+        this.classNames = classNames;
+        this.summaries = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @return the model shared by all jars with the same content as the given archive
+     */
+    static LibraryModel get(ZipFile zip) {
+        MessageDigest digest = HashUtil.getDigest();
+        ByteBuffer sizes = ByteBuffer.allocate(3 * Long.BYTES);
+        List<String> classNames = new ArrayList<>();
+
+        for (Enumeration<? extends ZipEntry> it = zip.entries(); it.hasMoreElements(); ) {
+            ZipEntry entry = it.nextElement();
+            String name = entry.getName();
+
+            sizes.clear();
+            sizes.putLong(name.length());
+            sizes.putLong(entry.getCrc());
+            sizes.putLong(entry.getSize());
+
+            digest.update(name.getBytes(StandardCharsets.UTF_8));
+            digest.update(sizes.array());
+
+            if (name.endsWith(".class")) {
+                classNames.add(name.substring(0, name.length() - ".class".length()));
+            }
+        }
+
+        StringBuilder key = new StringBuilder();
+        for (byte b : digest.digest()) {
+            key.append(String.format("%02x", b));
+        }
+
+        return MODELS.computeIfAbsent(key.toString(), k -> new LibraryModel(k, Collections.unmodifiableList(classNames)));
+    }
+
+    /**
+     * @return the summary of the class with the given name, parsed from
+     *  the archive of the given jar if no other jar has parsed it yet, or
+     *  {@code null} if the jar does not have a class with that name
+     */
+    ClassSummary getClass(JarRootEntry jar, String name) throws IOException {
+        ClassSummary summary = summaries.get(name);
+
+        if (summary == null) {
+            ZipFile zip = jar.getArchive();
+            ZipEntry entry = zip.getEntry(name + ".class");
+
+            if (entry == null) {
+                return null;
+            }
+
+            summary = JarReader.readClassFile(zip, entry, ClassSummary::read);
+
+            ClassSummary previous = summaries.putIfAbsent(name, summary);
+            if (previous != null) {
+                summary = previous;
+            }
+        }
+
+        return summary;
+    }
+}
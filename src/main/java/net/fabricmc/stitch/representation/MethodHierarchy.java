@@ -17,7 +17,13 @@
 
 package net.fabricmc.stitch.representation;
 
+import java.util.ArrayDeque;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Deque;
 import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Set;
@@ -26,91 +32,225 @@ import net.fabricmc.stitch.util.StitchUtil;
 
 public class MethodHierarchy {
 
+    private static final Side[] SIDES = Side.values();
+
     final String method;
 
+    // most hierarchies have a single member and no relations, so the
+    // collections below are only allocated once they are needed
+
     /**
      * hierarchies connected through specialized methods
      */
-    final Set<MethodHierarchy> parents = StitchUtil.newIdentityHashSet();
+    Set<MethodHierarchy> parents = Collections.emptySet();
     /**
      * hierarchies connected through bridge methods
      */
-    final Set<MethodHierarchy> children = StitchUtil.newIdentityHashSet();
+    Set<MethodHierarchy> children = Collections.emptySet();
 
-    final Map<JarClassEntry, JarMethodEntry> members = new IdentityHashMap<>();
-    final Map<JarClassEntry, JarMethodEntry> sources = new IdentityHashMap<>();
+    Map<JarClassEntry, JarMethodEntry> members;
+    Map<JarClassEntry, JarMethodEntry> sources = Collections.emptyMap();
 
-    private boolean populated;
-    private boolean fromLibrary;
+    boolean populated;
+    boolean fromLibrary;
+    private boolean linked;
+    private boolean sourcesPopulated;
 
     public MethodHierarchy(String method) {
         this.method = method;
+        this.members = new IdentityHashMap<>();
     }
 
     public MethodHierarchy(JarClassEntry c, JarMethodEntry m) {
-        this(m.getKey());
-
-        this.members.put(c, m);
-        this.sources.put(c, m);
+        this.method = m.getKey();
+        this.members = this.sources = new SingleMember(c, m);
     }
 
     void addMember(Classpath storage, JarClassEntry c, JarMethodEntry m) {
+        if (!(members instanceof IdentityHashMap)) {
+            members = new IdentityHashMap<>(members);
+        }
         members.put(c, m);
         m.hierarchy = this;
 
         fromLibrary |= !m.isMainJar(storage);
     }
 
-    void populateSources(Classpath storage) {
-        if (members.size() < 1) {
-            sources.putAll(members);
-        } else {
-            for (Map.Entry<JarClassEntry, JarMethodEntry> e : members.entrySet()) {
-                JarClassEntry c = e.getKey();
-                JarMethodEntry m = e.getValue();
+    void addSource(JarClassEntry c, JarMethodEntry m) {
+        if (!(sources instanceof IdentityHashMap)) {
+            sources = new IdentityHashMap<>(sources);
+        }
+        sources.put(c, m);
+    }
 
-                populateSources(storage, c, c.isOneSideOnly() ? c.getSide() : m.getSide());
-            }
+    void addParent(MethodHierarchy hierarchy) {
+        if (parents.isEmpty()) {
+            parents = StitchUtil.newIdentityHashSet();
+        }
+        parents.add(hierarchy);
+    }
+
+    void addChild(MethodHierarchy hierarchy) {
+        if (children.isEmpty()) {
+            children = StitchUtil.newIdentityHashSet();
         }
+        children.add(hierarchy);
     }
 
     /**
-     * @return true if the given class or one of its super classes is in the hierarchy
+     * Replaces the collections of this hierarchy by a compact form if it
+     * has a single member which is also its source, and no relations.
      */
-    private boolean populateSources(Classpath storage, JarClassEntry c, Side side) {
-        JarMethodEntry m = c.getMethod(method);
+    void compact() {
+        if (members.size() == 1 && sources.size() == 1 && parents.isEmpty() && children.isEmpty() && !(members instanceof SingleMember)) {
+            Map.Entry<JarClassEntry, JarMethodEntry> member = members.entrySet().iterator().next();
+            JarClassEntry c = member.getKey();
+            JarMethodEntry m = member.getValue();
+
+            if (sources.get(c) == m) {
+                members = sources = new SingleMember(c, m);
+            }
+        }
+    }
+
+    void populateSources(Classpath storage) {
+        if (sourcesPopulated) {
+            return;
+        }
+
+        sourcesPopulated = true;
+
+        if (members.isEmpty()) {
+            return;
+        }
 
-        boolean inHierarchy = false;
-        boolean superInHierarchy = false;
+        // find the sides from which each super class of the members
+        // is reached; methods that are not inherited block the search
+        Map<JarClassEntry, Integer> sides = new IdentityHashMap<>();
+        Deque<JarClassEntry> queue = new ArrayDeque<>();
+
+        for (Map.Entry<JarClassEntry, JarMethodEntry> e : members.entrySet()) {
+            JarClassEntry c = e.getKey();
+            JarMethodEntry m = e.getValue();
+
+            reach(c, 1 << (c.isOneSideOnly() ? c.getSide() : m.getSide()).ordinal(), sides, queue);
+        }
 
-        if (m != null) {
-            if (Access.isPrivateOrStatic(m.getAccess())  || m.getName().charAt(0) == '<') {
-                return false;
+        while (!queue.isEmpty()) {
+            JarClassEntry c = queue.poll();
+
+            if (!isInherited(c)) {
+                continue;
             }
 
-            inHierarchy = members.containsKey(c);
+            int mask = sides.get(c);
+            for (JarClassEntry sup : c.getSuperClasses(storage)) {
+                reach(sup, mask, sides, queue);
+            }
         }
 
-        JarClassEntry sup = c.getSuperClass(storage);
-        if (sup != null) {
-            superInHierarchy = populateSources(storage, sup, side) | superInHierarchy;
+        // a member is a source if none of its super classes are in the
+        // hierarchy, and it is reached from a side it is present on
+        Map<JarClassEntry, Boolean> inHierarchy = new IdentityHashMap<>();
+
+        for (Map.Entry<JarClassEntry, Integer> e : sides.entrySet()) {
+            JarClassEntry c = e.getKey();
+
+            if (!isInherited(c) || !members.containsKey(c)) {
+                continue;
+            }
+
+            boolean superInHierarchy = false;
+            for (JarClassEntry sup : c.getSuperClasses(storage)) {
+                superInHierarchy |= isInHierarchy(storage, sup, inHierarchy);
+            }
+
+            if (!superInHierarchy) {
+                JarMethodEntry m = c.getMethod(method);
+                int mask = e.getValue();
+
+                for (Side side : SIDES) {
+                    if ((mask & (1 << side.ordinal())) != 0 && (c.isOneSideOnly() ? side.isIn(c.side) : side.isIn(m.side))) {
+                        addSource(c, m);
+                        break;
+                    }
+                }
+            }
         }
+    }
+
+    private static void reach(JarClassEntry c, int side, Map<JarClassEntry, Integer> sides, Deque<JarClassEntry> queue) {
+        Integer mask = sides.get(c);
 
-        for (JarClassEntry itf : c.getInterfaces(storage)) {
-            superInHierarchy = populateSources(storage, itf, side) | superInHierarchy;;
+        if (mask == null || (mask | side) != mask) {
+            sides.put(c, (mask == null) ? side : (mask | side));
+            queue.add(c);
         }
+    }
 
-        if (inHierarchy && !superInHierarchy) {
-            if (c.isOneSideOnly() ? side.isIn(c.side) : side.isIn(m.side)) {
-                sources.put(c, m);
+    /**
+     * @return false if the given class declares this method, but
+     *  its sub classes do not inherit it
+     */
+    private boolean isInherited(JarClassEntry c) {
+        JarMethodEntry m = c.getMethod(method);
+        return m == null || !(Access.isPrivateOrStatic(m.getAccess()) || m.getName().charAt(0) == '<');
+    }
+
+    /**
+     * @return true if the given class or one of its super classes is in the hierarchy
+     */
+    private boolean isInHierarchy(Classpath storage, JarClassEntry start, Map<JarClassEntry, Boolean> memo) {
+        Boolean result = memo.get(start);
+
+        if (result != null) {
+            return result;
+        }
+
+        // post-order walk over the super classes, so
+        // deep hierarchies do not overflow the stack
+        Set<JarClassEntry> visiting = StitchUtil.newIdentityHashSet();
+        Deque<JarClassEntry> stack = new ArrayDeque<>();
+
+        stack.push(start);
+
+        while (!stack.isEmpty()) {
+            JarClassEntry c = stack.peek();
+
+            if (memo.containsKey(c)) {
+                stack.pop();
+            } else if (!isInherited(c)) {
+                memo.put(c, false);
+                stack.pop();
+            } else if (visiting.add(c)) {
+                for (JarClassEntry sup : c.getSuperClasses(storage)) {
+                    // classes that are still being visited can only
+                    // be reached again through a circular hierarchy
+                    if (!memo.containsKey(sup) && !visiting.contains(sup)) {
+                        stack.push(sup);
+                    }
+                }
+            } else {
+                boolean in = members.containsKey(c) && c.getMethod(method) != null;
+                for (JarClassEntry sup : c.getSuperClasses(storage)) {
+                    in |= memo.getOrDefault(sup, false);
+                }
+
+                memo.put(c, in);
+                stack.pop();
             }
         }
 
-        return inHierarchy || superInHierarchy;
+        return memo.get(start);
     }
 
-    void populateRelations(Classpath storage) {
-        if (!populated) {
+    /**
+     * Finds the hierarchies connected to this one through bridge and
+     * specialized methods. This only touches this hierarchy, and can
+     * be done for many hierarchies concurrently.
+     */
+    void populateLinks(Classpath storage) {
+        if (!linked) {
             for (Map.Entry<JarClassEntry, JarMethodEntry> e : members.entrySet()) {
                 JarClassEntry c = e.getKey();
                 JarMethodEntry m = e.getValue();
@@ -119,31 +259,78 @@ public class MethodHierarchy {
                 JarMethodEntry s = m.getSpecializedMethod(storage, c);
 
                 if (b != null) {
-                    parents.add(b.hierarchy);
+                    addParent(b.hierarchy);
                 }
                 if (s != null) {
-                    children.add(s.hierarchy);
+                    addChild(s.hierarchy);
                 }
             }
 
-            populated = true;
+            linked = true;
+        }
+    }
+
+    void populateRelations(Classpath storage) {
+        if (populated) {
+            return;
+        }
 
-            // populate related hierarchies recursively...
-            Set<MethodHierarchy> relations = StitchUtil.newIdentityHashSet();
+        // populate related hierarchies first, in post order with
+        // an explicit stack, as they can form long chains...
+        Deque<Iterator<MethodHierarchy>> relations = new ArrayDeque<>();
+        Deque<MethodHierarchy> stack = new ArrayDeque<>();
 
-            relations.addAll(parents);
-            relations.addAll(children);
+        relations.push(enterRelations(storage));
+        stack.push(this);
 
-            for (MethodHierarchy relation : relations) {
-                relation.populateRelations(storage);
-            }
+        while (!stack.isEmpty()) {
+            Iterator<MethodHierarchy> it = relations.peek();
+            MethodHierarchy next = null;
+
+            while (next == null && it.hasNext()) {
+                MethodHierarchy relation = it.next();
 
-            // ... so that this flag can be correctly propagated
-            if (parents.isEmpty() && fromLibrary) {
-                for (MethodHierarchy hierarchy : getRelatedHierarchies()) {
-                    hierarchy.fromLibrary = true;
+                if (!relation.populated) {
+                    next = relation;
                 }
             }
+
+            if (next == null) {
+                relations.pop();
+                stack.pop().propagateFromLibrary();
+            } else {
+                relations.push(next.enterRelations(storage));
+                stack.push(next);
+            }
+        }
+    }
+
+    /**
+     * Marks this hierarchy as populated and finds its links.
+     *
+     * @return the hierarchies related to this one
+     */
+    private Iterator<MethodHierarchy> enterRelations(Classpath storage) {
+        populateLinks(storage);
+
+        populated = true;
+
+        Set<MethodHierarchy> relations = StitchUtil.newIdentityHashSet();
+
+        relations.addAll(parents);
+        relations.addAll(children);
+
+        return relations.iterator();
+    }
+
+    /**
+     * Propagates the from library flag, once the related hierarchies are populated.
+     */
+    private void propagateFromLibrary() {
+        if (parents.isEmpty() && fromLibrary) {
+            for (MethodHierarchy hierarchy : getRelatedHierarchies()) {
+                hierarchy.fromLibrary = true;
+            }
         }
     }
 
@@ -165,19 +352,23 @@ public class MethodHierarchy {
 
     public Set<MethodHierarchy> getRelatedHierarchies() {
         Set<MethodHierarchy> hierarchies = StitchUtil.newIdentityHashSet();
-        collectRelatedHierarchies(hierarchies);
-        return hierarchies;
-    }
+        Deque<MethodHierarchy> work = new ArrayDeque<>();
+        work.push(this);
 
-    private void collectRelatedHierarchies(Set<MethodHierarchy> hierarchies) {
-        if (hierarchies.add(this)) {
-            for (MethodHierarchy parent : parents) {
-                parent.collectRelatedHierarchies(hierarchies);
-            }
-            for (MethodHierarchy child : children) {
-                child.collectRelatedHierarchies(hierarchies);
+        while (!work.isEmpty()) {
+            MethodHierarchy hierarchy = work.pop();
+
+            if (hierarchies.add(hierarchy)) {
+                for (MethodHierarchy parent : hierarchy.parents) {
+                    work.push(parent);
+                }
+                for (MethodHierarchy child : hierarchy.children) {
+                    work.push(child);
+                }
             }
         }
+
+        return hierarchies;
     }
 
     public Set<JarMethodEntry> getRelatedSourceMethods() {
@@ -201,4 +392,49 @@ public class MethodHierarchy {
     public boolean isFromMainJar() {
         return !fromLibrary;
     }
+
+    /**
+     * An immutable map with a single entry, which compares keys by identity.
+     */
+    private static final class SingleMember extends AbstractMap<JarClassEntry, JarMethodEntry> {
+
+        private final JarClassEntry c;
+        private final JarMethodEntry m;
+
+        SingleMember(JarClassEntry c, JarMethodEntry m) {
+            this.c = c;
+            this.m = m;
+        }
+
+        @Override
+        public int size() {
+            return 1;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key == c;
+        }
+
+        @Override
+        public JarMethodEntry get(Object key) {
+            return (key == c) ? m : null;
+        }
+
+        @Override
+        public Set<Map.Entry<JarClassEntry, JarMethodEntry>> entrySet() {
+            return new AbstractSet<Map.Entry<JarClassEntry, JarMethodEntry>>() {
+
+                @Override
+                public Iterator<Map.Entry<JarClassEntry, JarMethodEntry>> iterator() {
+                    return Collections.<Map.Entry<JarClassEntry, JarMethodEntry>>singleton(new SimpleImmutableEntry<>(c, m)).iterator();
+                }
+
+                @Override
+                public int size() {
+                    return 1;
+                }
+            };
+        }
+    }
 }
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2026 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.stitch.representation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups methods into method hierarchies. Methods with the same key are
+ * in the same hierarchy if a class inherits from both their classes. The
+ * groups are tracked in a disjoint-set forest, and the hierarchies are
+ * only created once all classes have been added.
+ */
+final class MethodHierarchyBuilder {
+
+    private final Classpath storage;
+
+    private final Map<JarMethodEntry, Integer> ids = new IdentityHashMap<>();
+    private final List<JarClassEntry> classes = new ArrayList<>();
+    private final List<JarMethodEntry> methods = new ArrayList<>();
+    private int[] parents = new int[64];
+    private int[] sizes = new int[64];
+
+    private final Map<String, Integer> keys = new HashMap<>();
+
+    MethodHierarchyBuilder(Classpath storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * Joins the methods of a class with those of its super classes.
+     *
+     * @param hierarchyClasses a class and all its super classes, as given
+     *  by {@link JarClassEntry#getHierarchyClasses}
+     */
+    void add(List<JarClassEntry> hierarchyClasses) {
+        keys.clear();
+
+        for (JarClassEntry c : hierarchyClasses) {
+            for (JarMethodEntry m : c.methods.values()) {
+                if (Access.isPrivateOrStatic(m.access) || m.name.charAt(0) == '<') {
+                    // these methods are not inherited, so they are
+                    // always in a hierarchy of their own
+                    if (m.hierarchy == null) {
+                        m.hierarchy = new MethodHierarchy(c, m);
+                    }
+                } else {
+                    int id = getId(c, m);
+                    Integer first = keys.putIfAbsent(m.getKey(), id);
+
+                    if (first != null) {
+                        union(first, id);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a method hierarchy for each group of methods.
+     */
+    void build() {
+        MethodHierarchy[] hierarchies = new MethodHierarchy[methods.size()];
+
+        for (int id = 0; id < methods.size(); id++) {
+            int root = find(id);
+            MethodHierarchy hierarchy = hierarchies[root];
+
+            if (hierarchy == null) {
+                hierarchy = hierarchies[root] = new MethodHierarchy(methods.get(root).getKey());
+            }
+
+            hierarchy.addMember(storage, classes.get(id), methods.get(id));
+        }
+    }
+
+    private int getId(JarClassEntry c, JarMethodEntry m) {
+        Integer id = ids.get(m);
+
+        if (id == null) {
+            id = methods.size();
+            ids.put(m, id);
+            classes.add(c);
+            methods.add(m);
+
+            if (id == parents.length) {
+                parents = Arrays.copyOf(parents, 2 * id);
+                sizes = Arrays.copyOf(sizes, 2 * id);
+            }
+
+            parents[id] = id;
+            sizes[id] = 1;
+        }
+
+        return id;
+    }
+
+    private int find(int id) {
+        while (parents[id] != id) {
+            // path halving
+            parents[id] = parents[parents[id]];
+            id = parents[id];
+        }
+
+        return id;
+    }
+
+    private void union(int a, int b) {
+        a = find(a);
+        b = find(b);
+
+        if (a != b) {
+            if (sizes[a] < sizes[b]) {
+                int t = a;
+                a = b;
+                b = t;
+            }
+
+            parents[b] = a;
+            sizes[a] += sizes[b];
+        }
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2026 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.stitch.representation;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A map from names to entries. The entries are kept in two arrays, which
+ * are indexed by a compact open addressing table of the hashes of the
+ * names. Iteration is in the natural order of the names, like a
+ * {@code TreeMap}: the arrays are sorted in place by {@link #sort}, or on
+ * the first iteration after the map was modified. An empty map does not
+ * allocate any arrays.
+ *
+ * <p>This map does not support removing single entries. It is not
+ * thread-safe for writes, and sorting it moves its entries around, so it
+ * can only be shared between threads once it is sorted and no longer
+ * modified. Sorting and iteration synchronize on the map.
+ */
+final class NameTable<V> extends AbstractMap<String, V> {
+
+    private static final String[] NO_KEYS = new String[0];
+    private static final Object[] NO_VALUES = new Object[0];
+    private static final int[] NO_SLOTS = new int[0];
+
+    private String[] keys = NO_KEYS;
+    private Object[] values = NO_VALUES;
+    /** the index of the entry of each slot, plus one, or 0 if the slot is empty */
+    private int[] slots = NO_SLOTS;
+    private int size;
+    private boolean sorted = true;
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String && indexOf((String) key) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+
+        int i = indexOf((String) key);
+        return (i < 0) ? null : (V) values[i];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(String key, V value) {
+        if (key == null) {
+            throw new NullPointerException("key cannot be null!");
+        }
+
+        int i = indexOf(key);
+
+        if (i >= 0) {
+            V previous = (V) values[i];
+            values[i] = value;
+            return previous;
+        }
+
+        if (size == keys.length) {
+            int capacity = Math.max(4, size + (size >> 1));
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        // names are often added in order, which keeps the map sorted
+        if (sorted && size > 0 && keys[size - 1].compareTo(key) > 0) {
+            sorted = false;
+        }
+
+        keys[size] = key;
+        values[size] = value;
+        size++;
+
+        // keep the table at most three quarters full
+        if (4 * size > 3 * slots.length) {
+            rehash(Math.max(8, 2 * slots.length));
+        } else {
+            slots[slotOf(key)] = size;
+        }
+
+        return null;
+    }
+
+    @Override
+    public void clear() {
+        keys = NO_KEYS;
+        values = NO_VALUES;
+        slots = NO_SLOTS;
+        size = 0;
+        sorted = true;
+    }
+
+    /**
+     * Sorts the entries by their names, and trims the arrays to the size
+     * of the map. This should be called once the map is complete.
+     */
+    synchronized void sort() {
+        if (!sorted) {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            String[] unsortedKeys = keys;
+            Arrays.sort(order, (a, b) -> unsortedKeys[a].compareTo(unsortedKeys[b]));
+
+            String[] sortedKeys = new String[size];
+            Object[] sortedValues = new Object[size];
+            for (int i = 0; i < size; i++) {
+                sortedKeys[i] = keys[order[i]];
+                sortedValues[i] = values[order[i]];
+            }
+
+            keys = sortedKeys;
+            values = sortedValues;
+            sorted = true;
+
+            rehash(slots.length);
+        } else if (size < keys.length) {
+            keys = Arrays.copyOf(keys, size);
+            values = Arrays.copyOf(values, size);
+        }
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+
+            @Override
+            public Iterator<V> iterator() {
+                return new SortedIterator<V>() {
+
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    V get(int i) {
+                        return (V) values[i];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Set<Map.Entry<String, V>> entrySet() {
+        return new AbstractSet<Map.Entry<String, V>>() {
+
+            @Override
+            public Iterator<Map.Entry<String, V>> iterator() {
+                return new SortedIterator<Map.Entry<String, V>>() {
+
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    Map.Entry<String, V> get(int i) {
+                        return new SimpleImmutableEntry<>(keys[i], (V) values[i]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * @return the index of the entry with the given name, or -1 if there is none
+     */
+    private int indexOf(String key) {
+        if (size == 0) {
+            return -1;
+        }
+
+        return slots[slotOf(key)] - 1;
+    }
+
+    /**
+     * @return the slot of the entry with the given name, or the empty
+     *  slot it would be put in
+     */
+    private int slotOf(String key) {
+        int mask = slots.length - 1;
+        int i = mix(key.hashCode()) & mask;
+
+        while (slots[i] != 0 && !keys[slots[i] - 1].equals(key)) {
+            i = (i + 1) & mask;
+        }
+
+        return i;
+    }
+
+    private void rehash(int capacity) {
+        slots = new int[capacity];
+
+        for (int i = 0; i < size; i++) {
+            slots[slotOf(keys[i])] = i + 1;
+        }
+    }
+
+    private static int mix(int h) {
+        // string hashes of similar names differ mostly in the low bits
+        return h ^ (h >>> 16);
+    }
+
+    private abstract class SortedIterator<T> implements Iterator<T> {
+
+        private final int end;
+        private int next;
+
+        SortedIterator() {
+            sort();
+            this.end = size;
+        }
+
+        abstract T get(int i);
+
+        @Override
+        public boolean hasNext() {
+            return next < end;
+        }
+
+        @Override
+        public T next() {
+            if (next >= end) {
+                throw new NoSuchElementException();
+            }
+
+            return get(next++);
+        }
+    }
+}
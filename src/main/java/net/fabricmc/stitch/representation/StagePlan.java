@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2026 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.stitch.representation;
+
+/**
+ * The stages that a {@link JarReader} runs. The classes of the jar are
+ * always read; each plan adds the stages that its users depend on.
+ */
+public enum StagePlan {
+    /**
+     * Only reads the classes of the jar, with their inner class attributes.
+     */
+    NESTS_ONLY(false, false),
+    /**
+     * Resolves the super types, inner classes, bridge methods and method
+     * hierarchies, but does not hash the entries.
+     */
+    HIERARCHY_NO_HASH(true, false),
+    /**
+     * Runs every stage.
+     */
+    FULL(true, true);
+
+    private final boolean hierarchies;
+    private final boolean hashes;
+
+    StagePlan(boolean hierarchies, boolean hashes) {
+        this.hierarchies = hierarchies;
+        this.hashes = hashes;
+    }
+
+    /**
+     * @return whether the libraries are read, and the sub classes, inner
+     *  classes, bridge methods and method hierarchies are populated
+     */
+    public boolean populatesHierarchies() {
+        return hierarchies;
+    }
+
+    public boolean hashesEntries() {
+        return hashes;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2026 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.stitch.representation;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonical instances of the class names, member names, descriptors and
+ * signatures of a classpath, so that equal symbols are only stored once.
+ */
+final class SymbolTable {
+
+    private final Map<String, String> symbols = new ConcurrentHashMap<>();
+
+    /**
+     * @return the canonical instance of the given symbol
+     */
+    String get(String symbol) {
+        if (symbol == null) {
+            return null;
+        }
+
+        String canonical = symbols.putIfAbsent(symbol, symbol);
+        return (canonical == null) ? symbol : canonical;
+    }
+
+    String[] getAll(String[] symbols) {
+        if (symbols == null) {
+            return null;
+        }
+
+        String[] canonical = new String[symbols.length];
+        for (int i = 0; i < symbols.length; i++) {
+            canonical[i] = get(symbols[i]);
+        }
+
+        return canonical;
+    }
+
+    int size() {
+        return symbols.size();
+    }
+}
@@ -4,19 +4,28 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
 
 import com.google.common.primitives.Booleans;
 
-import net.fabricmc.stitch.Main;
 import net.fabricmc.stitch.commands.GenState;
 import net.fabricmc.stitch.commands.GenStateMerged;
 import net.fabricmc.stitch.commands.GenStateSplit;
 import net.fabricmc.stitch.representation.Classpath;
 import net.fabricmc.stitch.representation.JarReader;
+import net.fabricmc.stitch.representation.StagePlan;
 
 public class IntermediaryUtil
 {
@@ -47,11 +56,19 @@ public class IntermediaryUtil
             storageNew.setSerializable(args.newCheckSerializable);
         }
 
+        Map<Classpath, byte[]> storages = new LinkedHashMap<>();
+        Map<Classpath, StagePlan> plans = new HashMap<>();
+        // the names are generated from the hashes of the new classpath,
+        // so the entries of the old classpaths need not be hashed
+        for (Classpath storageOld : storagesOld) {
+            storages.put(storageOld, new byte[0]);
+            plans.put(storageOld, StagePlan.HIERARCHY_NO_HASH);
+        }
+        storages.put(storageNew, args.salt);
+        plans.put(storageNew, StagePlan.FULL);
+
         try {
-            for (Classpath storageOld : storagesOld) {
-                new JarReader(storageOld).apply();
-            }
-            new JarReader(storageNew).apply(args.salt);
+            readClasspaths(args, storages, plans);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -112,19 +129,31 @@ public class IntermediaryUtil
             }
         }
 
+        // the old client and server classpaths can be the same
+        // object, in which case it should only be read once
+        Map<Classpath, byte[]> storages = new LinkedHashMap<>();
+        Map<Classpath, StagePlan> plans = new HashMap<>();
+        // the names are generated from the hashes of the new classpaths,
+        // so the entries of the old classpaths need not be hashed
+        if (storageClientOld != null) {
+            storages.put(storageClientOld, new byte[0]);
+            plans.put(storageClientOld, StagePlan.HIERARCHY_NO_HASH);
+        }
+        if (storageServerOld != null) {
+            storages.put(storageServerOld, new byte[0]);
+            plans.put(storageServerOld, StagePlan.HIERARCHY_NO_HASH);
+        }
+        if (storageClientNew != null) {
+            storages.put(storageClientNew, args.salt);
+            plans.put(storageClientNew, StagePlan.FULL);
+        }
+        if (storageServerNew != null) {
+            storages.put(storageServerNew, args.salt);
+            plans.put(storageServerNew, StagePlan.FULL);
+        }
+
         try {
-            if (storageClientOld != null) {
-                new JarReader(storageClientOld).apply();
-            }
-            if (storageServerOld != null && storageServerOld != storageClientOld) {
-                new JarReader(storageServerOld).apply();
-            }
-            if (storageClientNew != null) {
-                new JarReader(storageClientNew).apply(args.salt);
-            }
-            if (storageServerNew != null) {
-                new JarReader(storageServerNew).apply(args.salt);
-            }
+            readClasspaths(args, storages, plans);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -149,6 +178,68 @@ public class IntermediaryUtil
         System.err.println("Done!");
     }
 
+    /**
+     * Reads the given classpaths, each with its own salt and stage plan. If the thread
+     * budget allows it, the classpaths are read concurrently, and the
+     * remaining threads are shared among the readers.
+     */
+    private static void readClasspaths(Args args, Map<Classpath, byte[]> storages, Map<Classpath, StagePlan> plans) throws Exception {
+        int threads = (args.threads == null) ? 1 : args.threads;
+
+        if (threads == 1 || storages.size() == 1) {
+            for (Map.Entry<Classpath, byte[]> e : storages.entrySet()) {
+                newReader(args, e.getKey(), plans.get(e.getKey()), threads).apply(e.getValue());
+            }
+        } else {
+            int concurrent = Math.min(threads, storages.size());
+            ExecutorService executor = Executors.newFixedThreadPool(concurrent);
+
+            try {
+                List<Future<Void>> futures = new ArrayList<>();
+
+                for (Map.Entry<Classpath, byte[]> e : storages.entrySet()) {
+                    JarReader reader = newReader(args, e.getKey(), plans.get(e.getKey()), threads / concurrent);
+                    byte[] salt = e.getValue();
+
+                    futures.add(executor.submit(() -> {
+                        reader.apply(salt);
+                        return null;
+                    }));
+                }
+
+                for (Future<Void> future : futures) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException e) {
+                        Throwable cause = e.getCause();
+
+                        if (cause instanceof Exception) {
+                            throw (Exception) cause;
+                        }
+                        if (cause instanceof Error) {
+                            throw (Error) cause;
+                        }
+
+                        throw e;
+                    }
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private static JarReader newReader(Args args, Classpath storage, StagePlan plan, int threads) {
+        JarReader reader = new JarReader(storage);
+        reader.setThreads(threads);
+        reader.setStagePlan(plan);
+        reader.setSummaryOnlyClasses(args.summaryOnlyClasses);
+        if (args.cacheDirectory != null) {
+            reader.setCacheDirectory(args.cacheDirectory);
+        }
+        return reader;
+    }
+
     private static void prepareState(Args args, GenState state) {
         if (args.defaultPackage != null) {
             state.setDefaultPackage(args.defaultPackage);
@@ -168,14 +259,14 @@ public class IntermediaryUtil
         if (args.propagateNames != null) {
             state.setPropagateMethodNames(args.propagateNames);
         }
-        Main.MESSAGE_DIGEST.reset();
+        MessageDigest digest = HashUtil.getDigest();
         if (args.clientHash != null) {
-            Main.MESSAGE_DIGEST.update(args.clientHash.getBytes(StandardCharsets.UTF_8));
+            digest.update(args.clientHash.getBytes(StandardCharsets.UTF_8));
         }
         if (args.serverHash != null) {
-            Main.MESSAGE_DIGEST.update(args.serverHash.getBytes(StandardCharsets.UTF_8));
+            digest.update(args.serverHash.getBytes(StandardCharsets.UTF_8));
         }
-        args.salt = Main.MESSAGE_DIGEST.digest();
+        args.salt = digest.digest();
     }
 
     public static class Args {
@@ -187,6 +278,9 @@ public class IntermediaryUtil
         Boolean propagateNames;
         String clientHash;
         String serverHash;
+        File cacheDirectory;
+        Integer threads;
+        Pattern summaryOnlyClasses;
         byte[] salt;
 
     }
@@ -234,6 +328,38 @@ public class IntermediaryUtil
             args().serverHash = hash;
             return this;
         }
+
+        public ArgsBuilder cacheDirectory(File directory) {
+            args().cacheDirectory = directory;
+            return this;
+        }
+
+        public ArgsBuilder threads(int threads) {
+            if (threads < 1) {
+                throw new IllegalArgumentException("thread count cannot be less than 1!");
+            }
+
+            args().threads = threads;
+            return this;
+        }
+
+        /**
+         * Reads the classes of the libraries that are shaded into the jars,
+         * as matched by {@link GenState#SHADED_LIBRARY_CLASS_NAME}, only as
+         * far as the method hierarchies need them.
+         */
+        public ArgsBuilder summaryOnlyShadedLibraries() {
+            return summaryOnlyClasses(GenState.SHADED_LIBRARY_CLASS_NAME);
+        }
+
+        /**
+         * Sets the pattern that matches the classes of libraries shaded into
+         * the jars, which are only read as far as the method hierarchies need them.
+         */
+        public ArgsBuilder summaryOnlyClasses(Pattern pattern) {
+            args().summaryOnlyClasses = pattern;
+            return this;
+        }
     }
 
     public static class MergedArgs extends Args {
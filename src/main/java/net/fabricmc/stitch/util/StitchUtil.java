@@ -25,6 +25,10 @@ import java.net.URISyntaxException;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystemAlreadyExistsException;
 import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.util.*;
 
 public final class StitchUtil {
@@ -91,6 +95,22 @@ public final class StitchUtil {
         return builder.toString();
     }
 
+    /**
+     * Moves a temporary file into place, replacing the target file.
+     * Temporary files are only accessible to their owner, so the file is
+     * made readable to everyone first, as the target may be in a cache
+     * directory that is shared between users.
+     */
+    public static void moveIntoPlace(Path tmp, Path target) throws IOException {
+        try {
+            Files.setPosixFilePermissions(tmp, PosixFilePermissions.fromString("rw-r--r--"));
+        } catch (UnsupportedOperationException e) {
+            // not a posix file system
+        }
+
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
     public static <T> Set<T> newIdentityHashSet() {
         return Collections.newSetFromMap(new IdentityHashMap<>());
     }
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2026 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.stitch.commands;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.Opcodes;
+
+import net.fabricmc.stitch.representation.AbstractJarEntry;
+import net.fabricmc.stitch.representation.Classpath;
+import net.fabricmc.stitch.representation.JarClassEntry;
+import net.fabricmc.stitch.representation.JarReader;
+import net.fabricmc.stitch.representation.TestJars;
+
+public class TestShadedLibraryNames {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void shadedLibrariesAreMatchedByPackage() {
+        Assertions.assertTrue(GenState.SHADED_LIBRARY_CLASS_NAME.matcher("argo/jdom/JsonNode").matches());
+        Assertions.assertTrue(GenState.SHADED_LIBRARY_CLASS_NAME.matcher("com/jcraft/jorbis/Info").matches());
+        Assertions.assertTrue(GenState.SHADED_LIBRARY_CLASS_NAME.matcher("javax/annotation/Nullable").matches());
+        Assertions.assertFalse(GenState.SHADED_LIBRARY_CLASS_NAME.matcher("net/minecraft/Cargo").matches());
+        Assertions.assertFalse(GenState.SHADED_LIBRARY_CLASS_NAME.matcher("argonaut").matches());
+        Assertions.assertFalse(GenState.SHADED_LIBRARY_CLASS_NAME.matcher("a/javax/b").matches());
+
+        // every shaded library class is also not a Minecraft class
+        Assertions.assertFalse(GenState.isMinecraftClassName("com/fasterxml/jackson/Json"));
+    }
+
+    @Test
+    public void overridesOfShadedMethodsKeepTheirNames() throws IOException {
+        TestJars jars = new TestJars();
+        jars.add("paulscode/sound/Source", "java/lang/Object")
+                .method(Opcodes.ACC_PUBLIC, "play", "()V");
+        jars.add("a", "paulscode/sound/Source")
+                .method(Opcodes.ACC_PUBLIC, "play", "()V")
+                .method(Opcodes.ACC_PUBLIC, "b", "()V");
+        jars.add("net/minecraft/Cargo", "java/lang/Object")
+                .field(Opcodes.ACC_PRIVATE, "a", "I");
+        File jar = jars.write(dir, "shaded.jar");
+
+        Classpath classpath = new Classpath(jar);
+        JarReader reader = new JarReader(classpath);
+        reader.setSummaryOnlyClasses(GenState.SHADED_LIBRARY_CLASS_NAME);
+        reader.apply();
+
+        JarClassEntry shaded = classpath.getClass("paulscode/sound/Source");
+        JarClassEntry c = classpath.getClass("a");
+        Assertions.assertTrue(shaded.isSummaryOnly());
+        Assertions.assertFalse(GenState.isMinecraftClass(shaded));
+        Assertions.assertTrue(GenState.isMinecraftClass(c));
+        // only classes in the packages of shaded libraries are summaries
+        Assertions.assertFalse(classpath.getClass("net/minecraft/Cargo").isSummaryOnly());
+        Assertions.assertNotNull(classpath.getClass("net/minecraft/Cargo").getField("aI"));
+
+        GenState state = new GenState();
+        Map<AbstractJarEntry, String> values = new HashMap<>();
+
+        Assertions.assertEquals("play", state.nextMethodName(values, classpath, c, c.getMethod("play()V")));
+        Assertions.assertTrue(state.nextMethodName(values, classpath, c, c.getMethod("b()V")).matches("m_\\d{6}"));
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2026 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.stitch.representation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.Opcodes;
+
+public class TestClassGraph {
+
+	private static final int DEPTH = 5000;
+
+	@TempDir
+	Path dir;
+
+	private static Classpath read(File jar, File... libs) throws IOException {
+		Classpath classpath = new Classpath(jar, libs);
+		new JarReader(classpath).apply();
+		return classpath;
+	}
+
+	/**
+	 * Runs the given task on a thread with a small stack, on which
+	 * recursing once per class of a deep hierarchy would overflow.
+	 */
+	private static void runWithSmallStack(Callable task) throws Throwable {
+		AtomicReference<Throwable> error = new AtomicReference<>();
+		Thread thread = new Thread(null, () -> {
+			try {
+				task.call();
+			} catch (Throwable t) {
+				error.set(t);
+			}
+		}, "small-stack", 256 * 1024);
+
+		thread.start();
+		thread.join();
+
+		if (error.get() != null) {
+			throw error.get();
+		}
+	}
+
+	@Test
+	public void libraryRelationsAreFoundOnce() throws IOException {
+		TestJars jars = new TestJars();
+		jars.add("x", "lib/Base");
+		jars.add("y", "lib/Base");
+		jars.add("z", "lib/Base", "java/lang/Runnable");
+		File jar = jars.write(dir, "jar.jar");
+		File lib = TestJars.writeSampleLibrary(dir, "lib.jar");
+
+		for (int threads : new int[] { 1, 4 }) {
+			Classpath classpath = new Classpath(jar, Arrays.asList(lib));
+			JarReader reader = new JarReader(classpath);
+			reader.setThreads(threads);
+			reader.apply();
+
+			Assertions.assertEquals(Arrays.asList("x", "y", "z"), classpath.getClass("lib/Base").getSubclassNames());
+			Assertions.assertEquals(Arrays.asList("z", "lib/Base"), classpath.getClass("java/lang/Runnable").getImplementerNames());
+			Assertions.assertEquals(1, Collections.frequency(classpath.getClass("java/lang/Object").getSubclassNames(), "lib/Base"));
+		}
+	}
+
+	@Test
+	public void deepHierarchiesAreWalkedIteratively() throws Throwable {
+		File jar = TestJars.writeChain(dir, "chain.jar", DEPTH);
+
+		runWithSmallStack(() -> {
+			Classpath classpath = read(jar);
+			ClassGraph graph = classpath.graph;
+
+			JarClassEntry first = classpath.getClass("c0");
+			JarClassEntry last = classpath.getClass("c" + (DEPTH - 1));
+
+			// all classes of the chain but the last one, and java/lang/Object
+			Assertions.assertEquals(DEPTH, graph.getAncestors(last).length);
+			Assertions.assertTrue(graph.isSuperType(first, last));
+			Assertions.assertFalse(graph.isSuperType(last, first));
+
+			Assertions.assertSame(first.getMethod("m()V").getHierarchy(), last.getMethod("m()V").getHierarchy());
+			Assertions.assertEquals(DEPTH, last.getMethod("m()V").getHierarchy().getClasses().size());
+		});
+	}
+
+	@Test
+	public void ancestorsIncludeInterfacesOfSuperTypes() throws IOException {
+		Classpath classpath = read(TestJars.writeSample(dir, "sample.jar"), TestJars.writeSampleLibrary(dir, "lib.jar"));
+		ClassGraph graph = classpath.graph;
+
+		JarClassEntry e = classpath.getClass("e");
+		for (String sup : new String[] { "d", "java/util/AbstractList", "java/util/List", "java/util/Collection", "java/lang/Iterable", "java/io/Serializable", "java/lang/Object" }) {
+			Assertions.assertTrue(graph.isSuperType(classpath.getClass(sup), e), sup);
+		}
+		Assertions.assertFalse(graph.isSuperType(classpath.getClass("b"), e));
+
+		Assertions.assertTrue(graph.isSuperType(classpath.getClass("java/lang/Runnable"), classpath.getClass("f")));
+		Assertions.assertTrue(classpath.getClass("e").isSerializable(classpath));
+		Assertions.assertFalse(classpath.getClass("c").isSerializable(classpath));
+	}
+
+	@Test
+	public void classesAreNotReadAfterTheGraphIsBuilt() throws IOException {
+		Classpath classpath = read(TestJars.writeSample(dir, "sample.jar"), TestJars.writeSampleLibrary(dir, "lib.jar"));
+
+		Assertions.assertNotNull(classpath.graph);
+		Assertions.assertSame(classpath.getClass("java/util/List"), classpath.findClass("java/util/List"));
+		Assertions.assertNull(classpath.getClass("java/util/zip/Inflater"));
+		Assertions.assertThrows(IllegalStateException.class, () -> classpath.findClass("java/util/zip/Inflater"));
+		Assertions.assertNotNull(classpath.graph);
+	}
+
+	@Test
+	public void circularHierarchiesAreNotWalkedForever() throws IOException {
+		TestJars jars = new TestJars();
+		jars.add("x", "y").method(Opcodes.ACC_PUBLIC, "m", "()V");
+		jars.add("y", "x").method(Opcodes.ACC_PUBLIC, "m", "()V");
+		jars.add("z", "x").method(Opcodes.ACC_PUBLIC, "m", "()V");
+
+		Classpath classpath = read(jars.write(dir, "circular.jar"));
+		JarClassEntry x = classpath.getClass("x");
+		JarClassEntry y = classpath.getClass("y");
+
+		JarClassEntry z = classpath.getClass("z");
+
+		Assertions.assertTrue(classpath.graph.isSuperType(x, z));
+		Assertions.assertTrue(classpath.graph.isSuperType(y, z));
+		Assertions.assertFalse(z.isSerializable(classpath));
+		Assertions.assertSame(x.getMethod("m()V").getHierarchy(), z.getMethod("m()V").getHierarchy());
+	}
+
+	@FunctionalInterface
+	private interface Callable {
+
+		void call() throws Exception;
+
+	}
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2026 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.stitch.representation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestClasspathSnapshot {
+
+	private static final byte[] SALT = { 1, 2, 3 };
+
+	@TempDir
+	Path dir;
+
+	private File jar;
+	private File lib;
+	private File cache;
+
+	@BeforeEach
+	public void writeJars() throws IOException {
+		jar = TestJars.writeSample(dir, "sample.jar");
+		lib = TestJars.writeSampleLibrary(dir, "lib.jar");
+		cache = dir.resolve("cache").toFile();
+	}
+
+	private Classpath read(File cache) throws IOException {
+		Classpath classpath = new Classpath(jar, Arrays.asList(lib));
+		classpath.setSerializable(true);
+
+		JarReader reader = new JarReader(classpath);
+		reader.setCacheDirectory(cache);
+		reader.apply(SALT);
+
+		return classpath;
+	}
+
+	private File getSnapshot() throws IOException {
+		return ClasspathSnapshot.getFile(cache, new Classpath(jar, Arrays.asList(lib)), StagePlan.FULL, null, SALT);
+	}
+
+	/**
+	 * Checks that the model was read from the snapshot, and that it has
+	 * the relations and hashes of the model that was written.
+	 */
+	private static void assertRestored(Classpath expected, Classpath restored) {
+		// the jar is not opened if the model is read from the snapshot
+		Assertions.assertEquals(0, restored.getJar().getArchiveMisses());
+		TestJars.assertSampleModel(restored);
+
+		Assertions.assertArrayEquals(expected.getJar().getHash(), restored.getJar().getHash());
+		for (JarClassEntry c : expected.getJar().getAllClasses()) {
+			JarClassEntry r = restored.getClass(c.getName());
+
+			Assertions.assertArrayEquals(c.getHash(), r.getHash(), c.getName());
+			for (JarMethodEntry m : c.getMethods()) {
+				Assertions.assertArrayEquals(m.getHash(), r.getMethod(m.getKey()).getHash(), c.getName() + "." + m.getKey());
+			}
+		}
+	}
+
+	@Test
+	public void snapshotHasTheSameModel() throws IOException {
+		Classpath expected = read(null);
+
+		Classpath written = read(cache);
+		Assertions.assertTrue(getSnapshot().isFile());
+		TestJars.assertSampleModel(written);
+
+		assertRestored(expected, read(cache));
+	}
+
+	@Test
+	public void truncatedSnapshotIsNotRead() throws IOException {
+		read(cache);
+
+		File snapshot = getSnapshot();
+		byte[] data = Files.readAllBytes(snapshot.toPath());
+
+		for (int length : new int[] { 0, 6, 12, data.length / 2, data.length - 1 }) {
+			Files.write(snapshot.toPath(), Arrays.copyOf(data, length));
+
+			Classpath classpath = new Classpath(jar, Arrays.asList(lib));
+			Assertions.assertThrows(IOException.class, () -> ClasspathSnapshot.read(snapshot, classpath), "length " + length);
+			Assertions.assertTrue(classpath.getJar().getAllClasses().isEmpty());
+			Assertions.assertNull(classpath.getClass("b"));
+		}
+	}
+
+	@Test
+	public void corruptSnapshotIsNotRead() throws IOException {
+		read(cache);
+
+		File snapshot = getSnapshot();
+		byte[] data = Files.readAllBytes(snapshot.toPath());
+
+		for (int i = 8; i < data.length; i += 11) {
+			byte[] corrupt = data.clone();
+			corrupt[i] ^= 0x55;
+			Files.write(snapshot.toPath(), corrupt);
+
+			Classpath classpath = new Classpath(jar, Arrays.asList(lib));
+			Assertions.assertThrows(IOException.class, () -> ClasspathSnapshot.read(snapshot, classpath), "byte " + i);
+			Assertions.assertTrue(classpath.getJar().getAllClasses().isEmpty());
+		}
+	}
+
+	@Test
+	public void corruptSnapshotIsWrittenAgain() throws IOException {
+		Classpath expected = read(cache);
+
+		File snapshot = getSnapshot();
+		byte[] data = Files.readAllBytes(snapshot.toPath());
+		Files.write(snapshot.toPath(), Arrays.copyOf(data, data.length / 2));
+
+		Classpath rewritten = read(cache);
+		Assertions.assertNotEquals(0, rewritten.getJar().getArchiveMisses());
+		TestJars.assertSampleModel(rewritten);
+
+		assertRestored(expected, read(cache));
+	}
+
+	@Test
+	public void snapshotDependsOnTheSystemClassPath() throws IOException {
+		File expected = getSnapshot();
+		String classPath = System.getProperty("java.class.path");
+
+		try {
+			System.setProperty("java.class.path", classPath + File.pathSeparator + lib);
+			Assertions.assertNotEquals(expected, getSnapshot());
+		} finally {
+			System.setProperty("java.class.path", classPath);
+		}
+
+		Assertions.assertEquals(expected, getSnapshot());
+	}
+
+	@Test
+	public void incompleteModelIsNotWritten() throws IOException {
+		Classpath classpath = read(null);
+		// an inner class that was never added to a jar
+		JarClassEntry inner = new JarClassEntry("b$b", classpath.getJar());
+		classpath.getClass("b").innerClasses.put(inner.name, inner);
+
+		File snapshot = getSnapshot();
+		Assertions.assertThrows(IOException.class, () -> ClasspathSnapshot.write(snapshot, classpath));
+		Assertions.assertFalse(snapshot.exists());
+		Assertions.assertFalse(cache.exists() && cache.list().length > 0);
+	}
+
+	@Test
+	public void snapshotIsReadableToOtherUsers() throws IOException {
+		if (!FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+			return;
+		}
+
+		read(cache);
+
+		Assertions.assertTrue(Files.getPosixFilePermissions(getSnapshot().toPath()).contains(PosixFilePermission.OTHERS_READ));
+	}
+}
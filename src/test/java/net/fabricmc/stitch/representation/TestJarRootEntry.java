@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2026 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.stitch.representation;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestJarRootEntry {
+
+	private static JarClassEntry.ClassEntryPopulator populator(String name) {
+		JarClassEntry.ClassEntryPopulator populator = new JarClassEntry.ClassEntryPopulator();
+		populator.name = name;
+		populator.superclass = "java/lang/Object";
+		populator.interfaces = new String[0];
+		return populator;
+	}
+
+	@Test
+	public void findsClassesThatAnEarlierJarHasToo() throws IOException {
+		JarRootEntry jar = new JarRootEntry(new File("jar.jar"));
+		JarRootEntry first = new JarRootEntry(new File("first.jar"));
+		JarRootEntry second = new JarRootEntry(new File("second.jar"));
+		Classpath classpath = new Classpath(jar, first, second);
+
+		JarClassEntry a = first.getClass("a", populator("a"));
+		Assertions.assertNull(second.getClass("a", null));
+
+		JarClassEntry shadowed = second.getClass("a", populator("a"));
+		Assertions.assertNotSame(a, shadowed);
+		Assertions.assertSame(shadowed, second.getClass("a", null));
+		Assertions.assertSame(shadowed, second.getClass("a", populator("a")));
+		Assertions.assertSame(a, first.getClass("a", null));
+		Assertions.assertSame(a, classpath.getClass("a"));
+		Assertions.assertNull(jar.getClass("a", null));
+	}
+
+	@Test
+	public void findsClassesOnceAnEarlierJarHasThem() throws IOException {
+		JarRootEntry jar = new JarRootEntry(new File("jar.jar"));
+		JarRootEntry lib = new JarRootEntry(new File("lib.jar"));
+		Classpath classpath = new Classpath(jar, lib);
+
+		JarClassEntry libClass = lib.getClass("a", populator("a"));
+		JarClassEntry jarClass = jar.getClass("a", populator("a"));
+
+		Assertions.assertSame(jarClass, classpath.getClass("a"));
+		Assertions.assertSame(libClass, lib.getClass("a", null));
+		Assertions.assertEquals(1, lib.getAllClasses().size());
+	}
+}
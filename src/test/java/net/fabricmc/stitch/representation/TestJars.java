@@ -0,0 +1,313 @@
+/*
+ * Copyright (c) 2026 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.stitch.representation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Assertions;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * Builds small jars of generated classes to read in tests.
+ */
+public final class TestJars {
+
+	private final Map<String, ClassWriter> classes = new LinkedHashMap<>();
+
+	public TestClass add(String name, String superName, String... interfaces) {
+		return add(Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, name, superName, interfaces);
+	}
+
+	public TestClass add(int access, String name, String superName, String... interfaces) {
+		ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		writer.visit(Opcodes.V1_8, access, name, null, superName, interfaces.length == 0 ? null : interfaces);
+		classes.put(name, writer);
+
+		return new TestClass(name, writer);
+	}
+
+	public File write(Path dir, String name) throws IOException {
+		File file = dir.resolve(name).toFile();
+
+		try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(file.toPath()))) {
+			for (Map.Entry<String, ClassWriter> e : classes.entrySet()) {
+				out.putNextEntry(new ZipEntry(e.getKey() + ".class"));
+				out.write(e.getValue().toByteArray());
+				out.closeEntry();
+			}
+		}
+
+		return file;
+	}
+
+	/**
+	 * Writes a jar of which each given class is the super class of the
+	 * next one, and each class overrides the method {@code m()V}.
+	 */
+	public static File writeChain(Path dir, String name, int length) throws IOException {
+		TestJars jars = new TestJars();
+
+		String superName = "java/lang/Object";
+		for (int i = 0; i < length; i++) {
+			String className = "c" + i;
+			jars.add(className, superName).method(Opcodes.ACC_PUBLIC, "m", "()V");
+			superName = className;
+		}
+
+		return jars.write(dir, name);
+	}
+
+	/**
+	 * Writes a jar with a bit of everything the model keeps track of:
+	 * sub classes, implementers, bridge methods, inner classes, fields
+	 * and method hierarchies through library and JDK classes.
+	 */
+	public static File writeSample(Path dir, String name) throws IOException {
+		TestJars jars = new TestJars();
+
+		jars.add(Opcodes.ACC_PUBLIC | Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT, "a", "java/lang/Object")
+				.abstractMethod("a", "()V");
+		jars.add("b", "java/lang/Object", "a", "java/lang/Comparable")
+				.field(Opcodes.ACC_PRIVATE, "a", "I")
+				.method(Opcodes.ACC_PUBLIC, "a", "()V")
+				.method(Opcodes.ACC_PUBLIC, "compareTo", "(Lb;)I")
+				.bridge("compareTo", "(Ljava/lang/Object;)I", "(Lb;)I")
+				.inner("b$a", "a");
+		jars.add("b$a", "java/lang/Object", "java/lang/Runnable")
+				.field(Opcodes.ACC_FINAL | Opcodes.ACC_SYNTHETIC, "a", "Lb;")
+				.method(Opcodes.ACC_PUBLIC, "run", "()V")
+				.inner("b$a", "a");
+		jars.add("c", "b")
+				.method(Opcodes.ACC_PUBLIC, "a", "()V")
+				.method(Opcodes.ACC_PUBLIC, "compareTo", "(Lb;)I")
+				.method(Opcodes.ACC_PUBLIC, "b", "(Ljava/lang/String;)Ljava/lang/Object;");
+		jars.add("d", "java/util/AbstractList", "java/io/Serializable")
+				.field(Opcodes.ACC_PRIVATE, "a", "Ljava/util/List;")
+				.method(Opcodes.ACC_PUBLIC, "get", "(I)Ljava/lang/Object;")
+				.method(Opcodes.ACC_PUBLIC, "size", "()I")
+				.method(Opcodes.ACC_PUBLIC, "a", "()V");
+		jars.add("e", "d")
+				.method(Opcodes.ACC_PUBLIC, "size", "()I")
+				.method(Opcodes.ACC_PUBLIC, "toString", "()Ljava/lang/String;");
+		jars.add("f", "lib/Base")
+				.method(Opcodes.ACC_PUBLIC, "run", "()V")
+				.method(Opcodes.ACC_PUBLIC, "a", "()V");
+
+		return jars.write(dir, name);
+	}
+
+	/**
+	 * Writes a jar of randomly related classes and interfaces that share
+	 * method names, which depends on {@link #writeSampleLibrary(Path, String)}.
+	 */
+	public static File writeRandom(Path dir, String name, int classCount, long seed) throws IOException {
+		TestJars jars = new TestJars();
+		Random random = new Random(seed);
+		String[] methods = { "a()V", "b()V", "a(I)V", "c()Ljava/lang/Object;", "run()V", "size()I" };
+		List<String> interfaces = new ArrayList<>();
+		List<String> classes = new ArrayList<>();
+
+		for (int i = 0; i < classCount; i++) {
+			String className = "r" + i;
+
+			if (random.nextInt(5) == 0) {
+				String[] supers = interfaces.isEmpty() || random.nextBoolean() ? new String[0] : new String[] { interfaces.get(random.nextInt(interfaces.size())) };
+				TestClass c = jars.add(Opcodes.ACC_PUBLIC | Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT, className, "java/lang/Object", supers);
+				String method = methods[random.nextInt(methods.length)];
+				c.abstractMethod(method.substring(0, method.indexOf('(')), method.substring(method.indexOf('(')));
+				interfaces.add(className);
+			} else {
+				String superName;
+				switch (random.nextInt(4)) {
+				case 0:
+					superName = "java/lang/Object";
+					break;
+				case 1:
+					superName = "lib/Base";
+					break;
+				default:
+					superName = classes.isEmpty() ? "java/util/ArrayList" : classes.get(random.nextInt(classes.size()));
+				}
+				String[] supers = interfaces.isEmpty() || random.nextBoolean() ? new String[0] : new String[] { interfaces.get(random.nextInt(interfaces.size())) };
+				TestClass c = jars.add(className, superName, supers);
+				c.field(Opcodes.ACC_PRIVATE, "f", "I");
+
+				for (String method : methods) {
+					if (random.nextInt(3) == 0) {
+						c.method(Opcodes.ACC_PUBLIC, method.substring(0, method.indexOf('(')), method.substring(method.indexOf('(')));
+					}
+				}
+				if (random.nextInt(4) == 0) {
+					c.method(Opcodes.ACC_PUBLIC, "c", "()L" + className + ";");
+					c.bridge("c", "()Ljava/lang/Object;", "()L" + className + ";");
+				}
+				classes.add(className);
+			}
+		}
+
+		return jars.write(dir, name);
+	}
+
+	/**
+	 * Writes the library that {@link #writeSample(Path, String)} depends on.
+	 */
+	public static File writeSampleLibrary(Path dir, String name) throws IOException {
+		TestJars jars = new TestJars();
+
+		jars.add("lib/Base", "java/lang/Object", "java/lang/Runnable")
+				.method(Opcodes.ACC_PUBLIC, "run", "()V");
+		jars.add("lib/Unused", "java/lang/Object")
+				.method(Opcodes.ACC_PUBLIC, "run", "()V");
+
+		return jars.write(dir, name);
+	}
+
+	/**
+	 * Checks the relations that reading {@link #writeSample(Path, String)}
+	 * with all stages should find.
+	 */
+	public static void assertSampleModel(Classpath classpath) {
+		JarClassEntry b = classpath.getClass("b");
+		JarClassEntry c = classpath.getClass("c");
+		JarClassEntry f = classpath.getClass("f");
+
+		Assertions.assertEquals(Arrays.asList("a", "b", "b$a", "c", "d", "e", "f"), names(classpath.getJar().getAllClasses()));
+		Assertions.assertEquals(Arrays.asList("c"), b.getSubclassNames());
+		Assertions.assertEquals(Arrays.asList("b"), classpath.getClass("a").getImplementerNames());
+		Assertions.assertTrue(b.getInnerClasses().contains(classpath.getClass("b$a")));
+		Assertions.assertTrue(classpath.getClass("d").isSerializable(classpath));
+
+		// the bridge method of b links the hierarchies of both compareTo methods
+		JarMethodEntry compareTo = b.getMethod("compareTo(Lb;)I");
+		JarMethodEntry bridge = b.getMethod("compareTo(Ljava/lang/Object;)I");
+		Assertions.assertEquals("compareTo(Ljava/lang/Object;)I", compareTo.getBridgeMethodName());
+		Assertions.assertEquals("compareTo(Lb;)I", bridge.getSpecializedMethodName());
+		Assertions.assertTrue(compareTo.getHierarchy().getRelatedHierarchies().contains(bridge.getHierarchy()));
+		Assertions.assertSame(compareTo.getHierarchy(), c.getMethod("compareTo(Lb;)I").getHierarchy());
+		Assertions.assertFalse(compareTo.getHierarchy().isFromMainJar());
+
+		// a method of an interface of the jar
+		Assertions.assertSame(b.getMethod("a()V").getHierarchy(), c.getMethod("a()V").getHierarchy());
+		Assertions.assertTrue(b.getMethod("a()V").getHierarchy().isFromMainJar());
+
+		// methods inherited from libraries and the JDK
+		Assertions.assertFalse(f.getMethod("run()V").getHierarchy().isFromMainJar());
+		Assertions.assertFalse(classpath.getClass("e").getMethod("size()I").getHierarchy().isFromMainJar());
+		Assertions.assertTrue(f.getMethod("a()V").getHierarchy().isFromMainJar());
+		Assertions.assertNotSame(f.getMethod("a()V").getHierarchy(), b.getMethod("a()V").getHierarchy());
+		Assertions.assertNull(classpath.getJar().getClass("lib/Base", null));
+		Assertions.assertNotNull(classpath.getClass("lib/Base"));
+	}
+
+	public static List<String> names(Collection<JarClassEntry> classes) {
+		List<String> names = new ArrayList<>();
+		for (JarClassEntry c : classes) {
+			names.add(c.getName());
+		}
+		return names;
+	}
+
+	public static final class TestClass {
+
+		private final String name;
+		private final ClassWriter writer;
+
+		private TestClass(String name, ClassWriter writer) {
+			this.name = name;
+			this.writer = writer;
+		}
+
+		public TestClass field(int access, String name, String desc) {
+			writer.visitField(access, name, desc, null, null).visitEnd();
+			return this;
+		}
+
+		public TestClass abstractMethod(String name, String desc) {
+			writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, name, desc, null, null).visitEnd();
+			return this;
+		}
+
+		/**
+		 * Adds a method that returns the default value of its return type.
+		 */
+		public TestClass method(int access, String name, String desc) {
+			MethodVisitor mv = writer.visitMethod(access, name, desc, null, null);
+			Type returnType = Type.getReturnType(desc);
+
+			mv.visitCode();
+			switch (returnType.getSort()) {
+			case Type.VOID:
+				mv.visitInsn(Opcodes.RETURN);
+				break;
+			case Type.OBJECT:
+			case Type.ARRAY:
+				mv.visitInsn(Opcodes.ACONST_NULL);
+				mv.visitInsn(Opcodes.ARETURN);
+				break;
+			default:
+				mv.visitInsn(Opcodes.ICONST_0);
+				mv.visitInsn(Opcodes.IRETURN);
+			}
+			mv.visitMaxs(0, 0);
+			mv.visitEnd();
+
+			return this;
+		}
+
+		/**
+		 * Adds a bridge method that casts its arguments and calls the
+		 * method with the same name and the given descriptor.
+		 */
+		public TestClass bridge(String name, String desc, String targetDesc) {
+			MethodVisitor mv = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_BRIDGE | Opcodes.ACC_SYNTHETIC, name, desc, null, null);
+			Type[] targetArgs = Type.getArgumentTypes(targetDesc);
+
+			mv.visitCode();
+			mv.visitVarInsn(Opcodes.ALOAD, 0);
+			for (int i = 0; i < targetArgs.length; i++) {
+				mv.visitVarInsn(Opcodes.ALOAD, i + 1);
+				mv.visitTypeInsn(Opcodes.CHECKCAST, targetArgs[i].getInternalName());
+			}
+			mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, this.name, name, targetDesc, false);
+			mv.visitInsn(Type.getReturnType(desc).getOpcode(Opcodes.IRETURN));
+			mv.visitMaxs(0, 0);
+			mv.visitEnd();
+
+			return this;
+		}
+
+		public TestClass inner(String name, String innerName) {
+			writer.visitInnerClass(name, name.substring(0, name.lastIndexOf('$')), innerName, Opcodes.ACC_PUBLIC);
+			return this;
+		}
+	}
+}
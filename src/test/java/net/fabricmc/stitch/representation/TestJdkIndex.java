@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2026 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.stitch.representation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassReader;
+
+public class TestJdkIndex {
+
+	private static final String RUNTIME = "test runtime";
+
+	@TempDir
+	Path dir;
+
+	private static byte[] writeIndex() throws IOException {
+		Map<String, ClassSummary> classes = new LinkedHashMap<>();
+
+		for (String name : new String[] { "java/lang/Object", "java/lang/String", "java/util/ArrayList" }) {
+			classes.put(name, ClassSummary.read(new ClassReader(name)));
+		}
+
+		return JdkIndex.write(classes, RUNTIME);
+	}
+
+	@Test
+	public void indexCanBeReadBack() throws IOException {
+		JdkIndex index = JdkIndex.read(ByteBuffer.wrap(writeIndex()), RUNTIME);
+
+		Assertions.assertNotNull(index);
+		Assertions.assertEquals(3, index.size());
+		Assertions.assertNull(index.getClass("java/util/List"));
+
+		ClassSummary expected = ClassSummary.read(new ClassReader("java/util/ArrayList"));
+		ClassSummary summary = index.getClass("java/util/ArrayList");
+
+		Assertions.assertEquals(expected.access, summary.access);
+		Assertions.assertEquals(expected.superName, summary.superName);
+		Assertions.assertArrayEquals(expected.interfaces, summary.interfaces);
+		Assertions.assertArrayEquals(expected.methodNames, summary.methodNames);
+		Assertions.assertArrayEquals(expected.methodDescriptors, summary.methodDescriptors);
+		Assertions.assertSame(summary, index.getClass("java/util/ArrayList"));
+	}
+
+	@Test
+	public void indexOfOtherRuntimeIsNotRead() throws IOException {
+		Assertions.assertNull(JdkIndex.read(ByteBuffer.wrap(writeIndex()), "other runtime"));
+	}
+
+	@Test
+	public void corruptIndexIsNotRead() throws IOException {
+		byte[] data = writeIndex();
+
+		Assertions.assertNull(JdkIndex.read(ByteBuffer.wrap(new byte[0]), RUNTIME));
+		Assertions.assertNull(JdkIndex.read(ByteBuffer.wrap(Arrays.copyOf(data, 20)), RUNTIME));
+		Assertions.assertNull(JdkIndex.read(ByteBuffer.wrap(Arrays.copyOf(data, data.length - 1)), RUNTIME));
+
+		for (int i = 8; i < data.length; i += 7) {
+			byte[] corrupt = data.clone();
+			corrupt[i] ^= 0x55;
+
+			Assertions.assertNull(JdkIndex.read(ByteBuffer.wrap(corrupt), RUNTIME), "byte " + i);
+		}
+	}
+
+	@Test
+	public void corruptIndexFileIsRebuilt() throws IOException {
+		byte[] data = writeIndex();
+		File file = dir.resolve("jdk.bin").toFile();
+
+		// a truncated record would fail to decode if it were not checked
+		Files.write(file.toPath(), Arrays.copyOf(data, data.length - 16));
+
+		JdkIndex index = JdkIndex.load(file, RUNTIME);
+
+		Assertions.assertNotNull(index.getClass("java/lang/Object"));
+		Assertions.assertNotNull(index.getClass("java/util/ArrayList"));
+		Assertions.assertNotNull(JdkIndex.read(file, RUNTIME));
+	}
+
+	@Test
+	public void indexFileThatOthersCanChangeIsRebuilt() throws IOException {
+		Path file = dir.resolve("jdk.bin");
+		if (!file.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+			return;
+		}
+
+		Files.write(file, writeIndex());
+		Assertions.assertTrue(JdkIndex.isTrusted(file));
+		Assertions.assertEquals(3, JdkIndex.load(file.toFile(), RUNTIME).size());
+
+		Set<PosixFilePermission> permissions = EnumSet.copyOf(Files.getPosixFilePermissions(file));
+		permissions.add(PosixFilePermission.OTHERS_WRITE);
+		Files.setPosixFilePermissions(file, permissions);
+		Assertions.assertFalse(JdkIndex.isTrusted(file));
+
+		// the planted index is replaced by one of the whole JDK
+		Assertions.assertTrue(JdkIndex.load(file.toFile(), RUNTIME).size() > 3);
+		Assertions.assertTrue(JdkIndex.isTrusted(file));
+	}
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2026 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.stitch.representation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipFile;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestLibraryModel {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	public void jarsWithTheSameContentShareTheirModel() throws IOException {
+		File lib = TestJars.writeSampleLibrary(dir, "lib.jar");
+		File copy = Files.copy(lib.toPath(), dir.resolve("copy.jar")).toFile();
+		File other = TestJars.writeSample(dir, "other.jar");
+
+		try (ZipFile a = new ZipFile(lib); ZipFile b = new ZipFile(copy); ZipFile c = new ZipFile(other)) {
+			LibraryModel model = LibraryModel.get(a);
+
+			Assertions.assertSame(model, LibraryModel.get(b));
+			Assertions.assertNotSame(model, LibraryModel.get(c));
+			Assertions.assertTrue(model.classNames.contains("lib/Base"));
+		}
+	}
+}
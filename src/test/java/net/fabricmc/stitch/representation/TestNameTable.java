@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2026 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.stitch.representation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestNameTable {
+
+	@Test
+	public void iteratesInNameOrder() {
+		NameTable<Integer> table = new NameTable<>();
+		List<String> names = Arrays.asList("net/minecraft/b", "a", "net/minecraft/a$1", "net/minecraft/a", "b", "A", "a$b");
+
+		for (int i = 0; i < names.size(); i++) {
+			table.put(names.get(i), i);
+		}
+
+		List<String> sorted = new ArrayList<>(names);
+		Collections.sort(sorted);
+
+		Assertions.assertEquals(sorted, new ArrayList<>(table.keySet()));
+		for (Map.Entry<String, Integer> e : table.entrySet()) {
+			Assertions.assertEquals(names.get(e.getValue()), e.getKey());
+		}
+	}
+
+	@Test
+	public void findsEntriesWithCollidingHashes() {
+		NameTable<String> table = new NameTable<>();
+		// these names have the same hash code
+		table.put("Aa", "first");
+		table.put("BB", "second");
+
+		Assertions.assertEquals("Aa".hashCode(), "BB".hashCode());
+		Assertions.assertEquals("first", table.get("Aa"));
+		Assertions.assertEquals("second", table.get("BB"));
+		Assertions.assertNull(table.get("C#"));
+		Assertions.assertFalse(table.containsKey("C#"));
+		Assertions.assertFalse(table.containsKey(1));
+		Assertions.assertNull(table.get(null));
+	}
+
+	@Test
+	public void behavesLikeATreeMap() {
+		NameTable<Integer> table = new NameTable<>();
+		TreeMap<String, Integer> expected = new TreeMap<>();
+		Random random = new Random(42);
+
+		for (int i = 0; i < 5000; i++) {
+			String name = "c" + Integer.toString(random.nextInt(3000), 36);
+
+			Assertions.assertEquals(expected.put(name, i), table.put(name, i));
+
+			// iterating in between has to pick up later changes
+			if (i % 1000 == 0) {
+				Assertions.assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(table.entrySet()));
+			}
+		}
+
+		Assertions.assertEquals(expected.size(), table.size());
+		Assertions.assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(table.entrySet()));
+		Assertions.assertEquals(new ArrayList<>(expected.values()), new ArrayList<>(table.values()));
+		for (String name : expected.keySet()) {
+			Assertions.assertEquals(expected.get(name), table.get(name));
+		}
+
+		table.clear();
+
+		Assertions.assertTrue(table.isEmpty());
+		Assertions.assertFalse(table.entrySet().iterator().hasNext());
+		Assertions.assertNull(table.get(expected.firstKey()));
+	}
+
+	@Test
+	public void findsEntriesAfterSorting() {
+		NameTable<Integer> table = new NameTable<>();
+		Assertions.assertNull(table.get("a"));
+		Assertions.assertFalse(table.values().iterator().hasNext());
+
+		for (int i = 0; i < 100; i++) {
+			table.put("c" + ((i * 37) % 100), i);
+		}
+		table.sort();
+
+		for (int i = 0; i < 100; i++) {
+			Assertions.assertEquals(i, table.get("c" + ((i * 37) % 100)));
+		}
+
+		// names that are added in order after sorting keep the map sorted
+		table.put("d", 100);
+		table.put("c0", 101);
+		Assertions.assertEquals(101, table.size());
+		Assertions.assertEquals("d", new ArrayList<>(table.keySet()).get(100));
+		Assertions.assertEquals(101, table.get("c0"));
+	}
+
+	@Test
+	public void rejectsNullNames() {
+		Assertions.assertThrows(NullPointerException.class, () -> new NameTable<>().put(null, 0));
+	}
+
+	@Test
+	public void canBeIteratedConcurrently() throws Exception {
+		NameTable<Integer> table = new NameTable<>();
+		for (int i = 0; i < 10000; i++) {
+			table.put("c" + i, i);
+		}
+
+		List<Integer> expected = new ArrayList<>(new TreeMap<>(table).values());
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+
+		try {
+			List<Future<List<Integer>>> futures = new ArrayList<>();
+			for (int i = 0; i < 32; i++) {
+				futures.add(executor.submit(() -> new ArrayList<>(table.values())));
+			}
+			for (Future<List<Integer>> future : futures) {
+				Assertions.assertEquals(expected, future.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2026 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.stitch.representation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestParallelJarReader {
+
+	private static final byte[] SALT = { 4, 5, 6 };
+
+	@TempDir
+	Path dir;
+
+	private static Classpath read(File jar, File lib, int threads) throws IOException {
+		Classpath classpath = new Classpath(jar, Arrays.asList(lib));
+		classpath.setSerializable(true);
+
+		JarReader reader = new JarReader(classpath);
+		reader.setThreads(threads);
+		reader.apply(SALT);
+
+		return classpath;
+	}
+
+	@Test
+	public void sampleJarHasTheSameModel() throws IOException {
+		File jar = TestJars.writeSample(dir, "sample.jar");
+		File lib = TestJars.writeSampleLibrary(dir, "lib.jar");
+
+		for (int threads : new int[] { 1, 2, 4, 8 }) {
+			TestJars.assertSampleModel(read(jar, lib, threads));
+		}
+	}
+
+	@Test
+	public void randomJarsHaveTheSameRelations() throws IOException {
+		File lib = TestJars.writeSampleLibrary(dir, "lib.jar");
+
+		for (long seed = 0; seed < 5; seed++) {
+			File jar = TestJars.writeRandom(dir, "random-" + seed + ".jar", 400, seed);
+			Classpath expected = read(jar, lib, 1);
+
+			for (int threads : new int[] { 2, 4, 8 }) {
+				assertSameRelations(expected, read(jar, lib, threads));
+			}
+		}
+	}
+
+	/**
+	 * Checks that both classpaths hold the same classes in the same order,
+	 * and that their classes and methods are related in the same way.
+	 */
+	private static void assertSameRelations(Classpath expected, Classpath actual) {
+		Collection<JarClassEntry> classes = expected.getJar().getAllClasses();
+		Assertions.assertEquals(TestJars.names(classes), TestJars.names(actual.getJar().getAllClasses()));
+
+		for (JarClassEntry e : classes) {
+			JarClassEntry a = actual.getClass(e.getName());
+
+			Assertions.assertEquals(e.getSubclassNames(), a.getSubclassNames(), e.getName());
+			Assertions.assertEquals(e.getImplementerNames(), a.getImplementerNames(), e.getName());
+			Assertions.assertEquals(e.isSerializable(expected), a.isSerializable(actual), e.getName());
+
+			for (JarMethodEntry m : e.getMethods()) {
+				JarMethodEntry n = a.getMethod(m.getKey());
+				String method = e.getName() + "." + m.getKey();
+
+				Assertions.assertEquals(m.getBridgeMethodName(), n.getBridgeMethodName(), method);
+				Assertions.assertEquals(m.getSpecializedMethodName(), n.getSpecializedMethodName(), method);
+				Assertions.assertEquals(new TreeSet<>(TestJars.names(m.getHierarchy().getClasses())), new TreeSet<>(TestJars.names(n.getHierarchy().getClasses())), method);
+				Assertions.assertArrayEquals(m.getHash(), n.getHash(), method);
+			}
+		}
+	}
+}
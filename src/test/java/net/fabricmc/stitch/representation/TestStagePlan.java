@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2026 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.stitch.representation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+public class TestStagePlan {
+
+	private static final byte[] SALT = { 7, 8, 9 };
+
+	@TempDir
+	Path dir;
+
+	private File jar;
+	private File lib;
+
+	@BeforeEach
+	public void writeJars() throws IOException {
+		jar = TestJars.writeSample(dir, "sample.jar");
+		lib = TestJars.writeSampleLibrary(dir, "lib.jar");
+	}
+
+	private Classpath read(StagePlan plan) throws IOException {
+		Classpath classpath = new Classpath(jar, Arrays.asList(lib));
+		classpath.setSerializable(true);
+
+		JarReader reader = new JarReader(classpath);
+		reader.setStagePlan(plan);
+		reader.apply(SALT);
+
+		return classpath;
+	}
+
+	@Test
+	public void nestsOnlyReadsTheJar() throws IOException {
+		Classpath classpath = read(StagePlan.NESTS_ONLY);
+		JarRootEntry root = classpath.getJar();
+
+		Assertions.assertEquals(7, root.getAllClasses().size());
+		Assertions.assertEquals("a", root.getClass("b$a", null).getInnerName());
+
+		for (JarRootEntry library : classpath.classpath) {
+			if (library != root) {
+				Assertions.assertTrue(library.getAllClasses().isEmpty(), library.getName());
+			}
+		}
+		for (JarClassEntry c : root.getAllClasses()) {
+			Assertions.assertTrue(c.getSubclassNames().isEmpty(), c.getName());
+			Assertions.assertTrue(c.getImplementerNames().isEmpty(), c.getName());
+			Assertions.assertEquals(0, c.getHash().length, c.getName());
+
+			for (JarMethodEntry m : c.getMethods()) {
+				Assertions.assertNull(m.getHierarchy(), m.getName());
+				Assertions.assertNull(m.getBridgeMethodName(), m.getName());
+				Assertions.assertNull(m.getSpecializedMethodName(), m.getName());
+				Assertions.assertEquals(0, m.getHash().length, m.getName());
+			}
+		}
+		Assertions.assertTrue(root.getClass("b", null).getInnerClasses().isEmpty());
+	}
+
+	@Test
+	public void nestsOnlySkipsMethodBodies() throws IOException {
+		ClassWriter writer = new ClassWriter(0);
+		writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, "a", null, "java/lang/Object", null);
+		MethodVisitor mv = writer.visitMethod(Opcodes.ACC_PUBLIC, "a", "()V", null, null);
+		mv.visitCode();
+		// an opcode that the class reader rejects if it reads the body
+		mv.visitInsn(0xFE);
+		mv.visitMaxs(0, 1);
+		mv.visitEnd();
+		writer.visitEnd();
+
+		try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar.toPath()))) {
+			out.putNextEntry(new ZipEntry("a.class"));
+			out.write(writer.toByteArray());
+			out.closeEntry();
+		}
+
+		Classpath classpath = read(StagePlan.NESTS_ONLY);
+		Assertions.assertNotNull(classpath.getClass("a").getMethod("a()V"));
+
+		Assertions.assertThrows(IllegalArgumentException.class, () -> read(StagePlan.FULL));
+	}
+
+	@Test
+	public void hierarchyNoHashOnlySkipsHashes() throws IOException {
+		Classpath full = read(StagePlan.FULL);
+		Classpath noHash = read(StagePlan.HIERARCHY_NO_HASH);
+
+		for (JarClassEntry c : noHash.getJar().getAllClasses()) {
+			Assertions.assertEquals(0, c.getHash().length, c.getName());
+
+			for (JarFieldEntry f : c.getFields()) {
+				Assertions.assertEquals(0, f.getHash().length, f.getName());
+			}
+			for (JarMethodEntry m : c.getMethods()) {
+				Assertions.assertNotNull(m.getHierarchy(), m.getName());
+				Assertions.assertEquals(0, m.getHash().length, m.getName());
+			}
+		}
+		Assertions.assertEquals(0, noHash.getJar().getHash().length);
+		Assertions.assertNotEquals(0, full.getClass("b").getHash().length);
+
+		TestJars.assertSampleModel(noHash);
+	}
+
+	@Test
+	public void plansHaveSeparateSnapshots() throws IOException {
+		Classpath classpath = new Classpath(jar, Arrays.asList(lib));
+		File cache = dir.resolve("cache").toFile();
+
+		File nests = ClasspathSnapshot.getFile(cache, classpath, StagePlan.NESTS_ONLY, null, SALT);
+		File noHash = ClasspathSnapshot.getFile(cache, classpath, StagePlan.HIERARCHY_NO_HASH, null, SALT);
+		File full = ClasspathSnapshot.getFile(cache, classpath, StagePlan.FULL, null, SALT);
+
+		Assertions.assertNotEquals(nests, noHash);
+		Assertions.assertNotEquals(noHash, full);
+		Assertions.assertNotEquals(nests, full);
+	}
+}
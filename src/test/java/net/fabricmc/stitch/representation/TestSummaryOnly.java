@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2026 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.stitch.representation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.Opcodes;
+
+public class TestSummaryOnly {
+
+	@TempDir
+	Path dir;
+
+	/**
+	 * Writes a jar with a shaded library class and a class that extends it.
+	 */
+	static File writeShadedJar(Path dir) throws IOException {
+		TestJars jars = new TestJars();
+
+		jars.add("com/jcraft/Shaded", "java/lang/Object")
+				.field(Opcodes.ACC_PRIVATE, "a", "I")
+				.method(Opcodes.ACC_PUBLIC, "run", "()V");
+		jars.add("a", "com/jcraft/Shaded")
+				.method(Opcodes.ACC_PUBLIC, "run", "()V")
+				.method(Opcodes.ACC_PUBLIC, "b", "()V");
+
+		return jars.write(dir, "shaded.jar");
+	}
+
+	private Classpath read(File jar) throws IOException {
+		Classpath classpath = new Classpath(jar);
+		JarReader reader = new JarReader(classpath);
+		reader.setSummaryOnlyClasses(Pattern.compile("com/jcraft/.*"));
+		reader.apply();
+		return classpath;
+	}
+
+	private static void assertShadedSuperType(Classpath classpath) {
+		JarClassEntry shaded = classpath.getClass("com/jcraft/Shaded");
+		JarClassEntry c = classpath.getClass("a");
+
+		Assertions.assertTrue(shaded.isSummaryOnly());
+		Assertions.assertFalse(shaded.isMainJar(classpath));
+		Assertions.assertTrue(shaded.getFields().isEmpty());
+		Assertions.assertEquals(0, shaded.getHash().length);
+
+		Assertions.assertFalse(c.isSummaryOnly());
+		Assertions.assertTrue(c.isMainJar(classpath));
+		Assertions.assertNotEquals(0, c.getHash().length);
+
+		// the override of the shaded method keeps its name like a library override
+		JarMethodEntry run = c.getMethod("run()V");
+		Assertions.assertFalse(run.getHierarchy().isFromMainJar());
+		Assertions.assertFalse(shaded.getMethod("run()V").isMainJar(classpath));
+		Assertions.assertTrue(c.getMethod("b()V").getHierarchy().isFromMainJar());
+	}
+
+	@Test
+	public void shadedSuperTypeIsReadAsLibrary() throws IOException {
+		assertShadedSuperType(read(writeShadedJar(dir)));
+	}
+
+	@Test
+	public void snapshotKeepsSummaryOnlyClasses() throws IOException {
+		File jar = writeShadedJar(dir);
+		File snapshot = dir.resolve("snapshot.bin").toFile();
+
+		ClasspathSnapshot.write(snapshot, read(jar));
+
+		Classpath classpath = new Classpath(jar);
+		Assertions.assertTrue(ClasspathSnapshot.read(snapshot, classpath));
+		assertShadedSuperType(classpath);
+	}
+}